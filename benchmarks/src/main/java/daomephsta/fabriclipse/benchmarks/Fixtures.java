@@ -0,0 +1,116 @@
+package daomephsta.fabriclipse.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import com.google.gson.stream.JsonWriter;
+
+// Synthetic mod files, shaped like those of real mods
+public class Fixtures
+{
+    public static String fabricModJson(String modId, List<String> mixinConfigs)
+    {
+        return fabricModJson(modId, mixinConfigs, 0);
+    }
+
+    // Some mods ship large custom blocks, which are irrelevant to Fabriclipse
+    public static String fabricModJson(String modId, List<String> mixinConfigs, int customEntries)
+    {
+        var json = new StringBuilder();
+        json.append("{\n")
+            .append("  \"schemaVersion\": 1,\n")
+            .append("  \"id\": \"").append(modId).append("\",\n")
+            .append("  \"version\": \"1.0.0\",\n")
+            .append("  \"name\": \"").append(modId).append("\",\n")
+            .append("  \"description\": \"A synthetic mod used for benchmarking, with the usual fields.\",\n")
+            .append("  \"authors\": [\"Someone\", {\"name\": \"Someone Else\", \"contact\": {\"email\": \"a@b.c\"}}],\n")
+            .append("  \"license\": \"MIT\",\n")
+            .append("  \"environment\": \"*\",\n")
+            .append("  \"entrypoints\": {\"main\": [\"example.").append(modId).append(".Main\"],")
+            .append(" \"client\": [\"example.").append(modId).append(".Client\"]},\n")
+            .append("  \"mixins\": [");
+        for (int i = 0; i < mixinConfigs.size(); i++)
+        {
+            if (i > 0)
+                json.append(", ");
+            // Alternate between both forms of config declaration
+            if (i % 2 == 0)
+                json.append('"').append(mixinConfigs.get(i)).append('"');
+            else
+                json.append("{\"config\": \"").append(mixinConfigs.get(i)).append("\", \"environment\": \"client\"}");
+        }
+        json.append("],\n")
+            .append("  \"custom\": {");
+        for (int i = 0; i < customEntries; i++)
+        {
+            if (i > 0)
+                json.append(", ");
+            json.append("\"").append(modId).append(":entry").append(i).append("\": ")
+                .append("{\"enabled\": true, \"weight\": ").append(i)
+                .append(", \"tags\": [\"a\", \"b\", \"c\"]}");
+        }
+        json.append("},\n")
+            .append("  \"depends\": {\"fabricloader\": \">=0.11.3\", \"minecraft\": \"1.17.x\", \"java\": \">=16\"}\n")
+            .append("}\n");
+        return json.toString();
+    }
+
+    // Mixins are split between the common, client and server lists
+    public static String mixinConfig(String packageName, int mixins)
+    {
+        try (var json = new StringWriter(); var writer = new JsonWriter(json))
+        {
+            writer.setIndent("  ");
+            writer.beginObject()
+                .name("required").value(true)
+                .name("minVersion").value("0.8")
+                .name("package").value(packageName)
+                .name("compatibilityLevel").value("JAVA_16");
+            String[] lists = {"mixins", "client", "server"};
+            for (int list = 0; list < lists.length; list++)
+            {
+                writer.name(lists[list]).beginArray();
+                for (int i = list; i < mixins; i += lists.length)
+                    writer.value("sub" + (i % 7) + ".ExampleMixin" + i);
+                writer.endArray();
+            }
+            writer.name("injectors").beginObject().name("defaultRequire").value(1).endObject();
+            writer.endObject();
+            writer.flush();
+            return json.toString();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // A jar containing the given entries, followed by filler class files, e.g. to nest in another jar
+    public static byte[] jar(Map<String, byte[]> entries, int fillerClasses) throws IOException
+    {
+        byte[] filler = new byte[2048];
+        var bytes = new ByteArrayOutputStream();
+        try (var jarOut = new JarOutputStream(bytes))
+        {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet())
+            {
+                jarOut.putNextEntry(new JarEntry(entry.getKey()));
+                jarOut.write(entry.getValue());
+                jarOut.closeEntry();
+            }
+            for (int i = 0; i < fillerClasses; i++)
+            {
+                jarOut.putNextEntry(new JarEntry("example/filler/sub" + (i % 32) + "/Filler" + i + ".class"));
+                filler[i % filler.length] = (byte) i;
+                jarOut.write(filler);
+                jarOut.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,152 @@
+package daomephsta.fabriclipse.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.eclipse.jdt.core.IAnnotation;
+import org.eclipse.jdt.core.IField;
+import org.eclipse.jdt.core.IMemberValuePair;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.Signature;
+import org.eclipse.jdt.core.SourceRange;
+
+// Lightweight stand-ins for JDT handles, so benchmarks don't need a workspace.
+// Only the methods the plugin calls on binary types are implemented, anything else throws.
+public class JdtStubs
+{
+    private static final IAnnotation MISSING_ANNOTATION = stub(IAnnotation.class, "missing annotation",
+        Map.of("exists", args -> false));
+
+    public record MemberValuePair(String getMemberName, Object getValue, int getValueKind)
+        implements IMemberValuePair {}
+
+    public static class TypeBuilder
+    {
+        private final String name;
+        private String handleIdentifier;
+        private final List<IMethod> methods = new ArrayList<>();
+        private final Map<String, IField> fields = new HashMap<>();
+        private final Map<String, IAnnotation> annotations = new HashMap<>();
+        private final IType type;
+        private int nextOffset = 0;
+
+        public TypeBuilder(String name, String handleIdentifier)
+        {
+            this.name = name;
+            this.handleIdentifier = handleIdentifier;
+            this.type = stub(IType.class, name, Map.of(
+                "isBinary", args -> true,
+                "exists", args -> true,
+                "getElementName", args -> name.substring(name.lastIndexOf('.') + 1),
+                "getFullyQualifiedName", args -> name,
+                "getHandleIdentifier", args -> this.handleIdentifier,
+                "getMethods", args -> methods.toArray(IMethod[]::new),
+                "getField", args -> fields.getOrDefault(args[0], stub(IField.class, "missing field",
+                    Map.of("exists", a -> false, "getElementName", a -> args[0]))),
+                "getAnnotation", args -> annotations.getOrDefault(args[0], MISSING_ANNOTATION),
+                "getSourceRange", args -> new SourceRange(0, 1)));
+        }
+
+        // A new identifier makes the type look like a different handle to caches
+        public TypeBuilder handleIdentifier(String handleIdentifier)
+        {
+            this.handleIdentifier = handleIdentifier;
+            return this;
+        }
+
+        public TypeBuilder annotate(IAnnotation annotation)
+        {
+            annotations.put(annotation.getElementName(), annotation);
+            return this;
+        }
+
+        // Signature is a method descriptor with dots, as JDT uses for binary methods
+        public TypeBuilder method(String methodName, String signature, IAnnotation... methodAnnotations)
+        {
+            Map<String, IAnnotation> byName = new HashMap<>();
+            for (IAnnotation annotation : methodAnnotations)
+                byName.put(annotation.getElementName(), annotation);
+            String[] parameterTypes = Signature.getParameterTypes(signature);
+            var sourceRange = new SourceRange(nextOffset += 100, 50);
+            String key = 'L' + name.replace('.', '/') + ";." + methodName + signature.replace('.', '/');
+            methods.add(stub(IMethod.class, name + '.' + methodName + signature, Map.ofEntries(
+                Map.entry("isBinary", args -> true),
+                Map.entry("exists", args -> true),
+                Map.entry("isConstructor", args -> methodName.equals("<init>")),
+                Map.entry("getElementName", args -> methodName),
+                Map.entry("getSignature", args -> signature),
+                Map.entry("getKey", args -> key),
+                Map.entry("getParameterTypes", args -> parameterTypes.clone()),
+                Map.entry("getNumberOfParameters", args -> parameterTypes.length),
+                Map.entry("getFlags", args -> 0),
+                Map.entry("getSourceRange", args -> sourceRange),
+                Map.entry("getDeclaringType", args -> type),
+                Map.entry("getParent", args -> type),
+                Map.entry("getAnnotation", args -> byName.getOrDefault(args[0], MISSING_ANNOTATION)),
+                Map.entry("getAnnotations", args -> methodAnnotations.clone()))));
+            return this;
+        }
+
+        public TypeBuilder field(String fieldName)
+        {
+            var sourceRange = new SourceRange(nextOffset += 100, 20);
+            fields.put(fieldName, stub(IField.class, name + '.' + fieldName, Map.of(
+                "exists", args -> true,
+                "getElementName", args -> fieldName,
+                "getKey", args -> 'L' + name.replace('.', '/') + ";." + fieldName + ")",
+                "getFlags", args -> 0,
+                "getSourceRange", args -> sourceRange,
+                "getDeclaringType", args -> type)));
+            return this;
+        }
+
+        public IType build()
+        {
+            return type;
+        }
+    }
+
+    public static IAnnotation annotation(String qualifiedName, IMemberValuePair... members)
+    {
+        return stub(IAnnotation.class, "@" + qualifiedName, Map.of(
+            "exists", args -> true,
+            "getElementName", args -> qualifiedName,
+            "getMemberValuePairs", args -> members.clone()));
+    }
+
+    public static IMemberValuePair strings(String name, String... values)
+    {
+        return new MemberValuePair(name, values.length == 1 ? values[0] : values, IMemberValuePair.K_STRING);
+    }
+
+    // Equality is identity, like distinct JDT handles
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> type, String description, Map<String, Function<Object[], Object>> answers)
+    {
+        return (T) Proxy.newProxyInstance(JdtStubs.class.getClassLoader(), new Class<?>[] {type},
+            (proxy, method, args) ->
+            {
+                switch (method.getName())
+                {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return description;
+                }
+                Function<Object[], Object> answer = answers.get(method.getName());
+                if (answer == null)
+                {
+                    throw new UnsupportedOperationException(
+                        type.getSimpleName() + '.' + method.getName() + " is not stubbed");
+                }
+                return answer.apply(args);
+            });
+    }
+}
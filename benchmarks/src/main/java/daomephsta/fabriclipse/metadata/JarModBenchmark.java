@@ -0,0 +1,91 @@
+package daomephsta.fabriclipse.metadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import daomephsta.fabriclipse.benchmarks.Fixtures;
+
+// Reading a mixin config from a jar, with the jar already open (cached) and not (uncached),
+// and from a jar nested in it
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JarModBenchmark
+{
+    private static final String CONFIG = "example.mixins.json";
+    private static final String NESTED_JAR = "META-INF/jars/nested.jar";
+    // Size of the central directory, which is read when a jar is opened
+    @Param({"100", "10000"})
+    private int entries;
+    private java.nio.file.Path jar;
+    private JarMod mod;
+    private NestedJarMod nestedMod;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        byte[] config = Fixtures.mixinConfig("example.mixin", 100).getBytes(StandardCharsets.UTF_8);
+        byte[] nested = Fixtures.jar(Map.of(CONFIG, config), entries);
+        jar = Files.createTempFile("fabriclipse-benchmark", ".jar");
+        Files.write(jar, Fixtures.jar(Map.of(CONFIG, config, NESTED_JAR, nested), entries));
+        mod = new JarMod(null, Path.fromOSString(jar.toString()));
+        nestedMod = new NestedJarMod(null, mod, NESTED_JAR, mod.getFingerprint().nested(NESTED_JAR));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        OpenJarCache.INSTANCE.closeIdle();
+        Files.delete(jar);
+    }
+
+    @Benchmark
+    public byte[] openResourceCached() throws IOException
+    {
+        try (InputStream in = mod.openResource(CONFIG))
+        {
+            return in.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public byte[] openResourceUncached() throws IOException
+    {
+        OpenJarCache.INSTANCE.evict(mod.getFingerprint());
+        try (InputStream in = mod.openResource(CONFIG))
+        {
+            return in.readAllBytes();
+        }
+    }
+
+    // The nested jar is read into memory on first use, then served from there
+    @Benchmark
+    public byte[] openResourceNested() throws IOException
+    {
+        try (InputStream in = nestedMod.openResource(CONFIG))
+        {
+            return in.readAllBytes();
+        }
+    }
+}
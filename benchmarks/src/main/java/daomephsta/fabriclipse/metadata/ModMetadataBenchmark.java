@@ -0,0 +1,67 @@
+package daomephsta.fabriclipse.metadata;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import daomephsta.fabriclipse.benchmarks.Fixtures;
+
+// Run with -prof gc to compare allocation of streaming and of building a tree
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModMetadataBenchmark
+{
+    // Configured like ProjectEnvironmentManager's
+    private static final Gson GSON = new GsonBuilder()
+        .registerTypeAdapter(ModMetadata.class, ModMetadata.ADAPTER)
+        .create();
+    @Param({"1", "16"})
+    private int mixinConfigs;
+    @Param({"0", "1000"})
+    private int customEntries;
+    private String fabricModJson;
+
+    @Setup
+    public void setup()
+    {
+        List<String> configs = new ArrayList<>(mixinConfigs);
+        for (int i = 0; i < mixinConfigs; i++)
+            configs.add("example" + i + ".mixins.json");
+        fabricModJson = Fixtures.fabricModJson("example", configs, customEntries);
+    }
+
+    @Benchmark
+    public ModMetadata deserialize()
+    {
+        return GSON.fromJson(new StringReader(fabricModJson), ModMetadata.class);
+    }
+
+    // Baseline: the tree that was built before any field was read
+    @Benchmark
+    public JsonElement parseTree()
+    {
+        return JsonParser.parseReader(new StringReader(fabricModJson));
+    }
+}
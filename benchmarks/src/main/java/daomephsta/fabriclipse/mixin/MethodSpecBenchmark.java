@@ -0,0 +1,179 @@
+package daomephsta.fabriclipse.mixin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jdt.core.Signature;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import daomephsta.fabriclipse.mixin.TypeMembers.IndexedMethod;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MethodSpecBenchmark
+{
+    // The selector forms from MethodSpecTests
+    private static final String[] SELECTORS = {
+        "func_1234_a", "func_1234_a*", "func_1234_a+", "func_1234_a{,3}", "func_1234_a{3}", "func_1234_a{3,}",
+        "*", "{1}", "*(III)Z", "{2}(Z)V", "func_1234_a(III)Z", "func_1234_a()Z", "<init>(Ljava/lang/String;)V",
+        "Lfoo/bar/Baz;func_1234_a", "Lfoo/bar/Baz;func_1234_a(DDD)V", "foo.bar.Baz.func_1234_a(DDD)V"
+    };
+    // Selector -> candidates with the same name
+    @Param({"1", "8", "64"})
+    private int overloads;
+    // Far more than MethodSpec caches, so every parse misses
+    private String[] uniqueSelectors;
+    private List<IndexedMethod> candidates;
+    private MethodSpec first, all, byDescriptor, range;
+    private int next = 0;
+
+    @Setup
+    public void setup()
+    {
+        uniqueSelectors = new String[1 << 16];
+        for (int i = 0; i < uniqueSelectors.length; i++)
+            uniqueSelectors[i] = "Lnet/minecraft/class_" + i + ";method_" + i + "(ILjava/lang/String;[J)V";
+        String[][] parameterTypes = {{"I"}, {"Ljava.lang.String;"}, {}, {"I", "J"}};
+        candidates = new ArrayList<>(overloads);
+        for (int i = 0; i < overloads; i++)
+            candidates.add(new IndexedMethod(null, parameterTypes[i % parameterTypes.length]));
+        first = MethodSpec.parse("method_1234");
+        all = MethodSpec.parse("method_1234*");
+        byDescriptor = MethodSpec.parse("method_1234*(Ljava/lang/String;)V");
+        range = MethodSpec.parse("method_1234{2,4}");
+    }
+
+    @Benchmark
+    public MethodSpec parseCached()
+    {
+        return MethodSpec.parse(SELECTORS[next++ & (SELECTORS.length - 1)]);
+    }
+
+    @Benchmark
+    public MethodSpec parseUncached()
+    {
+        return MethodSpec.parse(uniqueSelectors[next++ & (uniqueSelectors.length - 1)]);
+    }
+
+    // Baseline: the regex parser MethodSpec used before the scanner, on the same selectors
+    @Benchmark
+    public RegexMethodSpec parseRegex()
+    {
+        return RegexMethodSpec.parse(SELECTORS[next++ & (SELECTORS.length - 1)]);
+    }
+
+    // Baseline: as above. The regex parser had no cache, so this is its cost per selector in any case.
+    @Benchmark
+    public RegexMethodSpec parseRegexUnique()
+    {
+        return RegexMethodSpec.parse(uniqueSelectors[next++ & (uniqueSelectors.length - 1)]);
+    }
+
+    @Benchmark
+    public List<IndexedMethod> selectFirst()
+    {
+        return first.select(candidates);
+    }
+
+    @Benchmark
+    public List<IndexedMethod> selectAll()
+    {
+        return all.select(candidates);
+    }
+
+    @Benchmark
+    public List<IndexedMethod> selectByDescriptor()
+    {
+        return byDescriptor.select(candidates);
+    }
+
+    @Benchmark
+    public List<IndexedMethod> selectRange()
+    {
+        return range.select(candidates);
+    }
+
+    @Benchmark
+    public Quantifier parseQuantifier()
+    {
+        return Quantifier.parse("{2,16}");
+    }
+
+    @Benchmark
+    public int quantifierSelects()
+    {
+        int selected = 0;
+        for (int index = 1; index <= overloads; index++)
+        {
+            if (range.quantifier.selects(index))
+                selected += 1;
+        }
+        return selected;
+    }
+
+    // A copy of MethodSpec.parse and Quantifier.parse from before the scanner, keeping only what they computed
+    record RegexMethodSpec(String owner, String name, String[] parameterTypes, String returnType,
+        int lowerBound, int upperBound, int minimumMatches)
+    {
+        private static final Pattern PATTERN = Pattern.compile(
+            "(?<owner>L[A-z$_0-9\\x{00C0}-\\x{FFFF}\\/]+;)?" +
+            "(?<name>[A-z$_0-9\\/\\x{00C0}-\\x{FFFF}<>]+)?" +
+            "(?<quantifier>\\*|\\+|\\{\\d?,?\\d?\\})?" +
+            "(?<desc>\\([A-z$_0-9\\/\\x{00C0}-\\x{FFFF};]*\\)[A-z$_0-9\\/\\x{00C0}-\\x{FFFF};]+)?");
+
+        static RegexMethodSpec parse(String methodSpec)
+        {
+            String toParse = methodSpec,
+                   owner = null;
+            int lastDot = methodSpec.lastIndexOf('.');
+            if (lastDot != -1)
+            {
+                toParse = methodSpec.substring(lastDot + 1);
+                owner = methodSpec.substring(0, lastDot);
+            }
+            Matcher matcher = PATTERN.matcher(toParse);
+            if (!matcher.matches())
+                throw new IllegalArgumentException("Invalid target method " + methodSpec);
+            if (owner == null)
+                owner = matcher.group("owner");
+            String descriptor = matcher.group("desc");
+            String[] parameterTypes = descriptor != null ? Signature.getParameterTypes(descriptor) : null;
+            String returnType = descriptor != null ? Signature.getReturnType(descriptor) : null;
+            String quantifier = matcher.group("quantifier");
+            if (quantifier == null)
+                return new RegexMethodSpec(owner, matcher.group("name"), parameterTypes, returnType, 1, 1, 0);
+            else if (quantifier.equals("*"))
+                return new RegexMethodSpec(owner, matcher.group("name"), parameterTypes, returnType, 1, Integer.MAX_VALUE, 0);
+            else if (quantifier.equals("+"))
+                return new RegexMethodSpec(owner, matcher.group("name"), parameterTypes, returnType, 1, Integer.MAX_VALUE, 1);
+            String[] bounds = quantifier.substring(1, quantifier.length() - 1).split(",");
+            if (bounds.length == 1)
+            {
+                int exact = Integer.parseInt(bounds[0]);
+                return new RegexMethodSpec(owner, matcher.group("name"), parameterTypes, returnType, exact, exact, 0);
+            }
+            int lowerBound = bounds[0].isEmpty() ? 1 : Integer.parseInt(bounds[0]);
+            int upperBound = bounds[1].isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(bounds[1]);
+            return new RegexMethodSpec(owner, matcher.group("name"), parameterTypes, returnType,
+                lowerBound, upperBound, lowerBound);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package daomephsta.fabriclipse.mixin;
+
+import static daomephsta.fabriclipse.benchmarks.JdtStubs.annotation;
+import static daomephsta.fabriclipse.benchmarks.JdtStubs.strings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.core.IType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import daomephsta.fabriclipse.benchmarks.JdtStubs.TypeBuilder;
+import daomephsta.fabriclipse.mixin.MixinCodeMiningProvider.MiningDescriptor;
+import daomephsta.fabriclipse.mixin.MixinStore.MixinInfo;
+
+// Computing minings for a class file targeted by many mixins, as when it is opened in an editor
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MiningBenchmark
+{
+    private static final String TARGET = "net.minecraft.Target";
+
+    @State(Scope.Benchmark)
+    public static class Mixins
+    {
+        @Param({"100", "1000"})
+        private int targetMethods;
+        @Param({"10", "100"})
+        private int mixins;
+        private TypeBuilder target;
+        private List<IType> mixinTypes;
+        private List<MixinInfo> infos;
+
+        @Setup
+        public void setup()
+        {
+            target = new TypeBuilder(TARGET, "=bench/target");
+            // Pairs of overloads, so quantifiers have something to do
+            for (int i = 0; i < targetMethods; i++)
+                target.method("method_" + i / 2, i % 2 == 0 ? "(I)V" : "(Ljava.lang.String;)V");
+            for (int i = 0; i < targetMethods / 4; i++)
+                target.field("field_" + i);
+            mixinTypes = new ArrayList<>(mixins);
+            for (int m = 0; m < mixins; m++)
+                mixinTypes.add(createMixin(m));
+            infos = createInfos(mixinTypes);
+        }
+
+        private IType createMixin(int m)
+        {
+            var mixin = new TypeBuilder("example.mixin.TargetMixin" + m, "=bench/mixin" + m)
+                .annotate(annotation("org.spongepowered.asm.mixin.Mixin", strings("targets", TARGET)));
+            String[] selectors = {"method_%d", "method_%d*", "method_%d(I)V", "Lnet/minecraft/Target;method_%d(Ljava/lang/String;)V"};
+            for (int k = 0; k < selectors.length; k++)
+            {
+                String selector = String.format(selectors[k], targetIndex(m, k));
+                mixin.method("inject" + k, "(Lorg.spongepowered.asm.mixin.injection.callback.CallbackInfo;)V",
+                    annotation("org.spongepowered.asm.mixin.injection.Inject", strings("method", selector)));
+            }
+            mixin.method("method_" + targetIndex(m, selectors.length), "(I)V",
+                annotation("org.spongepowered.asm.mixin.Overwrite"));
+            mixin.method("callMethod", "(I)V",
+                annotation("org.spongepowered.asm.mixin.gen.Invoker", strings("value", "method_" + targetIndex(m, 7))));
+            mixin.method("getField", "()I",
+                annotation("org.spongepowered.asm.mixin.gen.Accessor", strings("value", "field_" + m % (targetMethods / 4))));
+            return mixin.build();
+        }
+
+        private int targetIndex(int m, int k)
+        {
+            return (m * 7 + k * 13) % (targetMethods / 2);
+        }
+    }
+
+    // Handlers and members of the target are found again for every invocation
+    @State(Scope.Thread)
+    public static class Cold
+    {
+        private int invocation = 0;
+        private List<MixinInfo> infos;
+
+        @Setup(Level.Invocation)
+        public void setup(Mixins mixins)
+        {
+            mixins.target.handleIdentifier("=bench/target" + invocation++);
+            infos = createInfos(mixins.mixinTypes);
+        }
+    }
+
+    private static List<MixinInfo> createInfos(List<IType> mixinTypes)
+    {
+        List<MixinInfo> infos = new ArrayList<>(mixinTypes.size());
+        for (IType mixinType : mixinTypes)
+            infos.add(new MixinInfo(TARGET, mixinType, new MixinHandlers(mixinType)));
+        return infos;
+    }
+
+    @Benchmark
+    public List<MiningDescriptor> computeDescriptors(Mixins mixins)
+    {
+        return MixinCodeMiningProvider.computeDescriptors(mixins.infos, mixins.target.build());
+    }
+
+    @Benchmark
+    public List<MiningDescriptor> computeDescriptorsCold(Mixins mixins, Cold cold)
+    {
+        return MixinCodeMiningProvider.computeDescriptors(cold.infos, mixins.target.build());
+    }
+}
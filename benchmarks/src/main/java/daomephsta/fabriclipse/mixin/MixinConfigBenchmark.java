@@ -0,0 +1,69 @@
+package daomephsta.fabriclipse.mixin;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import daomephsta.fabriclipse.benchmarks.Fixtures;
+
+// Run with -prof gc to compare allocation of streaming and of building a tree
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MixinConfigBenchmark
+{
+    @Param({"10", "100", "1000"})
+    private int mixins;
+    private String config;
+
+    @Setup
+    public void setup()
+    {
+        config = Fixtures.mixinConfig("example.mod.mixin", mixins);
+    }
+
+    @Benchmark
+    public List<String> readMixinNames() throws IOException
+    {
+        return ProjectMixins.readMixinNames(new StringReader(config));
+    }
+
+    // Baseline: names read from a tree of the whole config, as before it was streamed
+    @Benchmark
+    public List<String> readMixinNamesFromTree()
+    {
+        JsonObject root = JsonParser.parseReader(new StringReader(config)).getAsJsonObject();
+        String packageName = root.get("package").getAsString();
+        List<String> mixinNames = new ArrayList<>();
+        for (String key : new String[] {"mixins", "client", "server"})
+        {
+            if (root.has(key))
+            {
+                for (JsonElement localName : root.get(key).getAsJsonArray())
+                    mixinNames.add(packageName + '.' + localName.getAsString());
+            }
+        }
+        return mixinNames;
+    }
+}
@@ -0,0 +1,79 @@
+package daomephsta.fabriclipse.mixin;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import daomephsta.fabriclipse.benchmarks.JdtStubs.TypeBuilder;
+import daomephsta.fabriclipse.mixin.MixinIndex.Entry;
+import daomephsta.fabriclipse.mixin.MixinStore.MixinInfo;
+
+// Looking up the mixins of a target in an index shaped like a large modpack
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MixinIndexBenchmark
+{
+    private static final Path JAR = new Path("/mods/synthetic.jar");
+    @Param({"1000", "20000"})
+    private int mixins;
+    private int targets;
+    private MixinIndex index;
+    private int next = 0;
+
+    @Setup
+    public void setup()
+    {
+        targets = mixins / 4;
+        index = new MixinIndex();
+        for (int m = 0; m < mixins; m++)
+        {
+            // Most mixins target one class, some target several, as in real mods
+            List<String> mixinTargets = m % 8 == 0
+                ? List.of(target(m), target(m + 1), target(m + 2))
+                : List.of(target(m));
+            String config = "mod" + m / 50 + ".mixins.json";
+            int id = index.add(Entry.pending(config, "mod.mixin.Mixin" + m, JAR, mixinTargets));
+            // Half resolved, as after a session of browsing
+            if (m % 2 == 0)
+            {
+                IType type = new TypeBuilder("mod.mixin.Mixin" + m, "=bench/mixin" + m).build();
+                index.resolve(id, type, new MixinHandlers(type));
+            }
+        }
+        System.out.println("\n" + index.footprint());
+    }
+
+    private String target(int m)
+    {
+        return "net.minecraft.class_" + m % targets;
+    }
+
+    @Benchmark
+    public List<MixinInfo> mixinsFor()
+    {
+        return index.mixinsFor(target(next++));
+    }
+
+    @Benchmark
+    public boolean hasPending()
+    {
+        return index.hasPending(target(next++));
+    }
+}
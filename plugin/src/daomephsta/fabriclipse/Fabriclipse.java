@@ -4,23 +4,50 @@ import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.ILog;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
+import daomephsta.fabriclipse.metadata.ModMetadataCache;
 import daomephsta.fabriclipse.metadata.ProjectEnvironmentManager;
 import daomephsta.fabriclipse.mixin.MixinStore;
+import daomephsta.fabriclipse.mixin.PersistentMixinIndex;
 
 public class Fabriclipse extends AbstractUIPlugin
 {
     public static final ILog LOGGER = Platform.getLog(Fabriclipse.class);
+    private static Fabriclipse instance;
 
     @Override
     public void start(BundleContext context) throws Exception
     {
         super.start(context);
+        instance = this;
+        ModMetadataCache.INSTANCE.load(getStateLocation());
+        PersistentMixinIndex.INSTANCE.load(getStateLocation());
         ResourcesPlugin.getWorkspace().addResourceChangeListener(
             MixinStore.INSTANCE, IResourceChangeEvent.POST_CHANGE);
         ResourcesPlugin.getWorkspace().addResourceChangeListener(
-            ProjectEnvironmentManager.INSTANCE, IResourceChangeEvent.POST_CHANGE);
+            ProjectEnvironmentManager.INSTANCE,
+            IResourceChangeEvent.POST_CHANGE | IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE);
+        JavaCore.addElementChangedListener(ProjectEnvironmentManager.INSTANCE, ElementChangedEvent.POST_CHANGE);
+    }
+
+    @Override
+    public void stop(BundleContext context) throws Exception
+    {
+        ResourcesPlugin.getWorkspace().removeResourceChangeListener(MixinStore.INSTANCE);
+        ResourcesPlugin.getWorkspace().removeResourceChangeListener(ProjectEnvironmentManager.INSTANCE);
+        JavaCore.removeElementChangedListener(ProjectEnvironmentManager.INSTANCE);
+        ModMetadataCache.INSTANCE.save(getStateLocation());
+        PersistentMixinIndex.INSTANCE.save(getStateLocation());
+        instance = null;
+        super.stop(context);
+    }
+
+    public static Fabriclipse getDefault()
+    {
+        return instance;
     }
 }
@@ -0,0 +1,31 @@
+package daomephsta.fabriclipse.metadata;
+
+import java.io.File;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+public record JarFingerprint(String path, long size, long lastModified)
+{
+    private static final String NESTED_SEPARATOR = "!/";
+
+    public static JarFingerprint of(IPath jarPath)
+    {
+        File jarFile = jarPath.toFile();
+        return new JarFingerprint(jarPath.toPortableString(), jarFile.length(), jarFile.lastModified());
+    }
+
+    // A nested jar only changes with the jar on disk containing it, so it shares that jar's size and modification time
+    public JarFingerprint nested(String entryName)
+    {
+        return new JarFingerprint(path + NESTED_SEPARATOR + entryName, size, lastModified);
+    }
+
+    // True if the jar on disk, or containing this nested jar, hasn't changed since this fingerprint was taken
+    public boolean isCurrent()
+    {
+        int separator = path.indexOf(NESTED_SEPARATOR);
+        File jarFile = Path.fromPortableString(separator != -1 ? path.substring(0, separator) : path).toFile();
+        return jarFile.length() == size && jarFile.lastModified() == lastModified;
+    }
+}
@@ -1,34 +1,72 @@
 package daomephsta.fabriclipse.metadata;
 
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.jar.JarEntry;
-import java.util.jar.JarInputStream;
 
 import org.eclipse.core.runtime.IPath;
 
+import daomephsta.fabriclipse.metadata.OpenJarCache.Lease;
+
 public class JarMod extends Mod
 {
     private final IPath jarPath;
+    private final JarFingerprint fingerprint;
 
     public JarMod(ModMetadata metadata, IPath jarPath)
+    {
+        this(metadata, jarPath, JarFingerprint.of(jarPath));
+    }
+
+    public JarMod(ModMetadata metadata, IPath jarPath, JarFingerprint fingerprint)
     {
         super(metadata);
         this.jarPath = jarPath;
+        this.fingerprint = fingerprint;
+    }
+
+    public IPath getJarPath()
+    {
+        return jarPath;
+    }
+
+    public JarFingerprint getFingerprint()
+    {
+        return fingerprint;
     }
 
     @Override
     public InputStream openResource(String path) throws IOException
     {
-        JarInputStream jarStream = new JarInputStream(new FileInputStream(jarPath.toFile()));
-        JarEntry entry;
-        while ((entry = jarStream.getNextJarEntry()) != null)
+        Lease lease = OpenJarCache.INSTANCE.acquire(fingerprint);
+        try
+        {
+            JarEntry entry = lease.jar().getJarEntry(path);
+            if (entry == null)
+                throw new FileNotFoundException(path + " not found in " + jarPath.toOSString());
+            // Keep the jar open until the stream is closed
+            return new FilterInputStream(lease.jar().getInputStream(entry))
+            {
+                @Override
+                public void close() throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        lease.close();
+                    }
+                }
+            };
+        }
+        catch (IOException | RuntimeException e)
         {
-            if (entry.getName().equals(path))
-                return jarStream;
+            lease.close();
+            throw e;
         }
-        throw new FileNotFoundException(path + " not found in " + jarPath.toOSString());
     }
 }
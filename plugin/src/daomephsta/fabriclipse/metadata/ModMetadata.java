@@ -1,14 +1,17 @@
 package daomephsta.fabriclipse.metadata;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import daomephsta.fabriclipse.Fabriclipse;
 
@@ -16,11 +19,14 @@ public class ModMetadata
 {
     private final String modId;
     private final Set<String> mixinConfigs;
+    // Paths of jar-in-jar mods inside this mod's jar
+    private final List<String> nestedJars;
 
-    private ModMetadata(String modId, Set<String> mixinConfigs)
+    private ModMetadata(String modId, Set<String> mixinConfigs, List<String> nestedJars)
     {
         this.modId = modId;
         this.mixinConfigs = mixinConfigs;
+        this.nestedJars = nestedJars;
     }
 
     public String getId()
@@ -33,43 +39,115 @@ public class ModMetadata
         return mixinConfigs;
     }
 
-    public static ModMetadata deserialize(JsonElement json, Type type, JsonDeserializationContext context)
-        throws JsonParseException
+    public List<String> getNestedJars()
     {
-        if (json instanceof JsonObject root)
+        return nestedJars;
+    }
+
+    // Streams fabric.mod.json, skipping everything but the fields it needs. Fields may be in any order.
+    public static final TypeAdapter<ModMetadata> ADAPTER = new TypeAdapter<>()
+    {
+        @Override
+        public ModMetadata read(JsonReader reader) throws IOException
         {
-            int schemaVersion = root.has("schemaVersion") ? root.get("schemaVersion").getAsInt() : 0;
-            String modId = root.get("id").getAsString();
+            if (reader.peek() != JsonToken.BEGIN_OBJECT)
+                throw new JsonParseException("Root element of fabric.mod.json must be an object");
+            int schemaVersion = 0;
+            String modId = null;
+            Set<String> mixinConfigs = new HashSet<>();
+            List<String> nestedJars = new ArrayList<>();
+            reader.beginObject();
+            while (reader.hasNext())
+            {
+                switch (reader.nextName())
+                {
+                case "schemaVersion" -> schemaVersion = reader.nextInt();
+                case "id" -> modId = reader.nextString();
+                case "mixins" -> readMixinConfigs(reader, mixinConfigs);
+                case "jars" -> readNestedJars(reader, nestedJars);
+                default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (modId == null)
+                throw new JsonParseException("fabric.mod.json must have an id");
             if (schemaVersion != 1)
             {
                 Fabriclipse.LOGGER.warn("Unknown schemaVersion " + schemaVersion);
-                return new ModMetadata(modId, Collections.emptySet());
+                return new ModMetadata(modId, Collections.emptySet(), Collections.emptyList());
             }
-            Set<String> mixinConfigs = readMixinConfigs(root);
-            return new ModMetadata(modId, mixinConfigs);
+            return new ModMetadata(modId, mixinConfigs, nestedJars);
         }
-        throw new JsonParseException("Root element of fabric.mod.json must be an object");
-    }
 
-    private static Set<String> readMixinConfigs(JsonObject root)
+        // Writes the subset of fabric.mod.json that is read by read()
+        @Override
+        public void write(JsonWriter writer, ModMetadata metadata) throws IOException
+        {
+            writer.beginObject()
+                .name("schemaVersion").value(1)
+                .name("id").value(metadata.modId)
+                .name("mixins").beginArray();
+            for (String mixinConfig : metadata.mixinConfigs)
+                writer.value(mixinConfig);
+            writer.endArray().name("jars").beginArray();
+            for (String nestedJar : metadata.nestedJars)
+                writer.beginObject().name("file").value(nestedJar).endObject();
+            writer.endArray().endObject();
+        }
+    };
+
+    private static void readMixinConfigs(JsonReader reader, Set<String> mixinConfigs) throws IOException
     {
-        Set<String> mixinConfigs = new HashSet<>();
-        if (root.has("mixins"))
+        reader.beginArray();
+        while (reader.hasNext())
         {
-            var mixins = root.get("mixins").getAsJsonArray();
-            for (JsonElement mixinConfig : mixins)
+            switch (reader.peek())
             {
-                if (mixinConfig.isJsonObject()) // Side can be safely ignored as a dev env is merged
-                    mixinConfigs.add(mixinConfig.getAsJsonObject().get("config").getAsString());
-                else if (mixinConfig.isJsonPrimitive() && mixinConfig.getAsJsonPrimitive().isString())
-                    mixinConfigs.add(mixinConfig.getAsString());
-                else
+            case STRING -> mixinConfigs.add(reader.nextString());
+            case BEGIN_OBJECT -> // Side can be safely ignored as a dev env is merged
+            {
+                String config = null;
+                reader.beginObject();
+                while (reader.hasNext())
                 {
-                    throw new JsonParseException("Elements in mixins array"
-                        + " of fabric.mod.json must be strings or JSON objects");
+                    if (reader.nextName().equals("config"))
+                        config = reader.nextString();
+                    else
+                        reader.skipValue();
                 }
+                reader.endObject();
+                if (config == null)
+                    throw new JsonParseException("Mixin config objects in fabric.mod.json must have a config");
+                mixinConfigs.add(config);
+            }
+            default -> throw new JsonParseException("Elements in mixins array"
+                + " of fabric.mod.json must be strings or JSON objects");
             }
         }
-        return mixinConfigs;
+        reader.endArray();
+    }
+
+    private static void readNestedJars(JsonReader reader, List<String> nestedJars) throws IOException
+    {
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT)
+                throw new JsonParseException("Elements in jars array of fabric.mod.json must be JSON objects");
+            String file = null;
+            reader.beginObject();
+            while (reader.hasNext())
+            {
+                if (reader.nextName().equals("file"))
+                    file = reader.nextString();
+                else
+                    reader.skipValue();
+            }
+            reader.endObject();
+            if (file == null)
+                throw new JsonParseException("Nested jar objects in fabric.mod.json must have a file");
+            nestedJars.add(file);
+        }
+        reader.endArray();
     }
 }
@@ -0,0 +1,170 @@
+package daomephsta.fabriclipse.metadata;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.runtime.IPath;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+
+import daomephsta.fabriclipse.Fabriclipse;
+
+// Workspace-wide cache of jar mod metadata, shared by all projects and persisted between sessions
+public class ModMetadataCache
+{
+    public static final ModMetadataCache INSTANCE = new ModMetadataCache();
+    private static final String FILE_NAME = "mod-metadata.json";
+    private static final Gson GSON = new GsonBuilder().create();
+    // Jar path -> metadata of the latest fingerprint seen for that path
+    private final Map<String, CachedMetadata> byJar = new ConcurrentHashMap<>();
+    private final Map<JarFingerprint, CompletableFuture<Optional<ModMetadata>>> reading = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    // Metadata is null for jars that are not mods
+    private record CachedMetadata(JarFingerprint fingerprint, ModMetadata metadata) {}
+
+    @FunctionalInterface
+    public interface MetadataReader
+    {
+        // Returns null if the jar is not a mod
+        ModMetadata read() throws IOException;
+    }
+
+    public Optional<ModMetadata> get(JarFingerprint fingerprint, MetadataReader reader) throws IOException
+    {
+        CachedMetadata cached = byJar.get(fingerprint.path());
+        if (cached != null && cached.fingerprint().equals(fingerprint))
+            return Optional.ofNullable(cached.metadata());
+        // Concurrent requests for the same jar wait for the first, so each jar is only read once
+        CompletableFuture<Optional<ModMetadata>> read = new CompletableFuture<>();
+        CompletableFuture<Optional<ModMetadata>> existing = reading.putIfAbsent(fingerprint, read);
+        if (existing != null)
+            return join(existing);
+        try
+        {
+            ModMetadata metadata = reader.read();
+            byJar.put(fingerprint.path(), new CachedMetadata(fingerprint, metadata));
+            dirty = true;
+            read.complete(Optional.ofNullable(metadata));
+            return Optional.ofNullable(metadata);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            read.completeExceptionally(e);
+            throw e;
+        }
+        finally
+        {
+            reading.remove(fingerprint, read);
+        }
+    }
+
+    private static Optional<ModMetadata> join(CompletableFuture<Optional<ModMetadata>> read) throws IOException
+    {
+        try
+        {
+            return read.join();
+        }
+        catch (CompletionException e)
+        {
+            if (e.getCause() instanceof IOException ioe)
+                throw ioe;
+            if (e.getCause() instanceof RuntimeException re)
+                throw re;
+            throw e;
+        }
+    }
+
+    public void load(IPath stateLocation)
+    {
+        File cacheFile = stateLocation.append(FILE_NAME).toFile();
+        if (!cacheFile.exists())
+            return;
+        try (Reader reader = Files.newBufferedReader(cacheFile.toPath(), StandardCharsets.UTF_8))
+        {
+            for (JsonElement element : GSON.fromJson(reader, JsonArray.class))
+            {
+                JsonObject entry = element.getAsJsonObject();
+                JarFingerprint fingerprint = new JarFingerprint(entry.get("jar").getAsString(),
+                    entry.get("size").getAsLong(), entry.get("lastModified").getAsLong());
+                // Entries for jars that have since changed will never be used again. Entries written
+                // before nested jars were read are read again.
+                if (!fingerprint.isCurrent() || entry.has("metadata") && !entry.getAsJsonObject("metadata").has("jars"))
+                {
+                    dirty = true;
+                    continue;
+                }
+                ModMetadata metadata = entry.has("metadata")
+                    ? ModMetadata.ADAPTER.fromJsonTree(entry.get("metadata"))
+                    : null;
+                byJar.put(fingerprint.path(), new CachedMetadata(fingerprint, metadata));
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            Fabriclipse.LOGGER.warn("Discarding unreadable mod metadata cache " + cacheFile, e);
+            byJar.clear();
+            cacheFile.delete();
+        }
+    }
+
+    // Saved by scans of different projects at once, so saves are serialized and replace the file atomically
+    public synchronized void save(IPath stateLocation)
+    {
+        if (!dirty)
+            return;
+        // Cleared first, so metadata added while the snapshot is taken is saved next time
+        dirty = false;
+        JsonArray entries = new JsonArray();
+        for (CachedMetadata cached : byJar.values())
+        {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("jar", cached.fingerprint().path());
+            entry.addProperty("size", cached.fingerprint().size());
+            entry.addProperty("lastModified", cached.fingerprint().lastModified());
+            if (cached.metadata() != null)
+                entry.add("metadata", ModMetadata.ADAPTER.toJsonTree(cached.metadata()));
+            entries.add(entry);
+        }
+        File cacheFile = stateLocation.append(FILE_NAME).toFile();
+        File tempFile = stateLocation.append(FILE_NAME + ".tmp").toFile();
+        try
+        {
+            try (Writer writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8))
+            {
+                GSON.toJson(entries, writer);
+            }
+            try
+            {
+                Files.move(tempFile.toPath(), cacheFile.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException | JsonIOException e)
+        {
+            dirty = true;
+            tempFile.delete();
+            Fabriclipse.LOGGER.error("Saving mod metadata cache " + cacheFile, e);
+        }
+    }
+}
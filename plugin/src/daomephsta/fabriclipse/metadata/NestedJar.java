@@ -0,0 +1,118 @@
+package daomephsta.fabriclipse.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+// A jar held in memory, with its central directory indexed so entries can be read without scanning the archive.
+// Zip64 archives aren't supported, mod jars are far smaller than 4 GB.
+class NestedJar
+{
+    private static final int
+        END_SIGNATURE = 0x06054B50,
+        CENTRAL_SIGNATURE = 0x02014B50,
+        LOCAL_SIGNATURE = 0x04034B50,
+        END_SIZE = 22,
+        CENTRAL_HEADER_SIZE = 46,
+        LOCAL_HEADER_SIZE = 30,
+        STORED = 0,
+        DEFLATED = 8;
+    private final byte[] bytes;
+    private final Map<String, Entry> entries;
+
+    private record Entry(int localHeader, int compressedSize, int method) {}
+
+    NestedJar(byte[] bytes) throws ZipException
+    {
+        this.bytes = bytes;
+        this.entries = readCentralDirectory(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    private static Map<String, Entry> readCentralDirectory(ByteBuffer buffer) throws ZipException
+    {
+        int end = findEnd(buffer);
+        int count = buffer.getShort(end + 10) & 0xFFFF;
+        int offset = buffer.getInt(end + 16);
+        Map<String, Entry> entries = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++)
+        {
+            if (offset < 0 || offset + CENTRAL_HEADER_SIZE > buffer.limit() || buffer.getInt(offset) != CENTRAL_SIGNATURE)
+                throw new ZipException("Malformed central directory");
+            int method = buffer.getShort(offset + 10) & 0xFFFF;
+            int compressedSize = buffer.getInt(offset + 20);
+            int nameLength = buffer.getShort(offset + 28) & 0xFFFF;
+            int extraLength = buffer.getShort(offset + 30) & 0xFFFF;
+            int commentLength = buffer.getShort(offset + 32) & 0xFFFF;
+            int localHeader = buffer.getInt(offset + 42);
+            if (compressedSize < 0 || localHeader < 0)
+                throw new ZipException("Zip64 is not supported");
+            // Lengths are checked, so a corrupt archive fails like any other unreadable one
+            if ((long) offset + CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength > buffer.limit())
+                throw new ZipException("Malformed central directory");
+            String name = new String(buffer.array(), offset + CENTRAL_HEADER_SIZE, nameLength, StandardCharsets.UTF_8);
+            entries.put(name, new Entry(localHeader, compressedSize, method));
+            offset += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    // The end of central directory record is last, followed only by a comment of up to 64 KB
+    private static int findEnd(ByteBuffer buffer) throws ZipException
+    {
+        int lowest = Math.max(0, buffer.limit() - END_SIZE - 0xFFFF);
+        for (int offset = buffer.limit() - END_SIZE; offset >= lowest; offset--)
+        {
+            if (buffer.getInt(offset) == END_SIGNATURE)
+                return offset;
+        }
+        throw new ZipException("No end of central directory");
+    }
+
+    // Null if there is no such entry
+    InputStream open(String name) throws IOException
+    {
+        Entry entry = entries.get(name);
+        if (entry == null)
+            return null;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if ((long) entry.localHeader() + LOCAL_HEADER_SIZE > bytes.length || buffer.getInt(entry.localHeader()) != LOCAL_SIGNATURE)
+            throw new ZipException("Malformed local header for " + name);
+        // Sizes in the local header may be deferred to a data descriptor, so those in the central directory are used
+        int data = entry.localHeader() + LOCAL_HEADER_SIZE +
+            (buffer.getShort(entry.localHeader() + 26) & 0xFFFF) + (buffer.getShort(entry.localHeader() + 28) & 0xFFFF);
+        if ((long) data + entry.compressedSize() > bytes.length)
+            throw new ZipException("Truncated entry " + name);
+        var compressed = new ByteArrayInputStream(bytes, data, entry.compressedSize());
+        return switch (entry.method())
+        {
+        case STORED -> compressed;
+        case DEFLATED ->
+        {
+            Inflater inflater = new Inflater(true);
+            yield new InflaterInputStream(compressed, inflater)
+            {
+                @Override
+                public void close() throws IOException
+                {
+                    super.close();
+                    inflater.end();
+                }
+            };
+        }
+        default -> throw new ZipException("Unsupported compression method " + entry.method() + " for " + name);
+        };
+    }
+
+    int size()
+    {
+        return bytes.length;
+    }
+}
@@ -0,0 +1,61 @@
+package daomephsta.fabriclipse.metadata;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+// A jar-in-jar mod, read from memory instead of being extracted. Its path is that of its container,
+// followed by its path inside the container.
+public class NestedJarMod extends JarMod
+{
+    // Nested jars are only read while indexing, so their bytes are kept briefly
+    private static final Cache<JarFingerprint, NestedJar> ARCHIVES = CacheBuilder.newBuilder()
+        .maximumWeight(64 * 1024 * 1024)
+        .<JarFingerprint, NestedJar>weigher((fingerprint, archive) -> archive.size())
+        .expireAfterAccess(1, TimeUnit.MINUTES)
+        .build();
+    private final JarMod container;
+    private final String entryName;
+
+    public NestedJarMod(ModMetadata metadata, JarMod container, String entryName, JarFingerprint fingerprint)
+    {
+        super(metadata, container.getJarPath().append(entryName), fingerprint);
+        this.container = container;
+        this.entryName = entryName;
+    }
+
+    @Override
+    public InputStream openResource(String path) throws IOException
+    {
+        InputStream resource = archive(container, entryName, getFingerprint()).open(path);
+        if (resource == null)
+            throw new FileNotFoundException(path + " not found in " + getJarPath().toOSString());
+        return resource;
+    }
+
+    // Reads a nested jar from its container, which may itself be nested
+    static NestedJar archive(JarMod container, String entryName, JarFingerprint fingerprint) throws IOException
+    {
+        try
+        {
+            return ARCHIVES.get(fingerprint, () ->
+            {
+                try (InputStream in = container.openResource(entryName))
+                {
+                    return new NestedJar(in.readAllBytes());
+                }
+            });
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException ioe)
+                throw ioe;
+            throw new IOException("Reading " + entryName + " in " + container.getJarPath().toOSString(), e.getCause());
+        }
+    }
+}
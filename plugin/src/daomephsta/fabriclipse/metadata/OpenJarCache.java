@@ -0,0 +1,139 @@
+package daomephsta.fabriclipse.metadata;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarFile;
+
+import org.eclipse.core.runtime.Path;
+
+import daomephsta.fabriclipse.Fabriclipse;
+
+// Bounded LRU cache of open jars. Jars in use are never closed, idle jars are closed once over capacity.
+public class OpenJarCache
+{
+    public static final OpenJarCache INSTANCE = new OpenJarCache(128);
+    private final int capacity;
+    // Access ordered, guarded by this
+    private final Map<JarFingerprint, Entry> open = new LinkedHashMap<>(16, 0.75F, true);
+
+    private static class Entry
+    {
+        private final JarFile jar;
+        private int references = 0;
+
+        private Entry(JarFile jar)
+        {
+            this.jar = jar;
+        }
+    }
+
+    public class Lease implements AutoCloseable
+    {
+        private final Entry entry;
+        private boolean released = false;
+
+        private Lease(Entry entry)
+        {
+            this.entry = entry;
+        }
+
+        public JarFile jar()
+        {
+            return entry.jar;
+        }
+
+        @Override
+        public void close()
+        {
+            synchronized (OpenJarCache.this)
+            {
+                if (released)
+                    return;
+                released = true;
+                entry.references -= 1;
+                evictIdle(capacity);
+            }
+        }
+    }
+
+    public OpenJarCache(int capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    public Lease acquire(JarFingerprint fingerprint) throws IOException
+    {
+        synchronized (this)
+        {
+            Entry entry = open.get(fingerprint);
+            if (entry != null)
+                return lease(entry);
+        }
+        // Open outside the lock so jars can be opened concurrently
+        JarFile jar = new JarFile(Path.fromPortableString(fingerprint.path()).toFile());
+        synchronized (this)
+        {
+            Entry entry = open.get(fingerprint);
+            if (entry != null)
+                jar.close();
+            else
+            {
+                entry = new Entry(jar);
+                open.put(fingerprint, entry);
+            }
+            Lease lease = lease(entry);
+            evictIdle(capacity);
+            return lease;
+        }
+    }
+
+    private Lease lease(Entry entry)
+    {
+        entry.references += 1;
+        return new Lease(entry);
+    }
+
+    // Closes a jar once it is no longer in use, e.g. because it will not be read again
+    public synchronized void evict(JarFingerprint fingerprint)
+    {
+        Entry entry = open.get(fingerprint);
+        if (entry != null && entry.references == 0)
+        {
+            open.remove(fingerprint);
+            closeQuietly(entry);
+        }
+    }
+
+    // Closes all jars not in use. Open jars are locked on Windows, so this must be done after indexing.
+    public synchronized void closeIdle()
+    {
+        evictIdle(0);
+    }
+
+    private void evictIdle(int targetSize)
+    {
+        for (Iterator<Entry> iter = open.values().iterator(); iter.hasNext() && open.size() > targetSize;)
+        {
+            Entry entry = iter.next();
+            if (entry.references == 0)
+            {
+                iter.remove();
+                closeQuietly(entry);
+            }
+        }
+    }
+
+    private static void closeQuietly(Entry entry)
+    {
+        try
+        {
+            entry.jar.close();
+        }
+        catch (IOException e)
+        {
+            Fabriclipse.LOGGER.warn("Closing " + entry.jar.getName(), e);
+        }
+    }
+}
@@ -2,15 +2,22 @@ package daomephsta.fabriclipse.metadata;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 import org.eclipse.core.filebuffers.FileBuffers;
 import org.eclipse.core.filebuffers.ITextFileBuffer;
@@ -24,8 +31,14 @@ import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.jdt.core.ElementChangedEvent;
 import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElementDelta;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
@@ -34,44 +47,154 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonParseException;
 
 import daomephsta.fabriclipse.Fabriclipse;
+import daomephsta.fabriclipse.metadata.OpenJarCache.Lease;
 import daomephsta.fabriclipse.mixin.MixinStore;
+import daomephsta.fabriclipse.util.Jobs;
 
-public class ProjectEnvironmentManager implements IResourceChangeListener
+public class ProjectEnvironmentManager implements IResourceChangeListener, IElementChangedListener
 {
     public static final ProjectEnvironmentManager INSTANCE = new ProjectEnvironmentManager();
     private static final IPath FABRIC_MOD_JSON = Path.fromPortableString("src/main/resources/fabric.mod.json");
     private static final Gson GSON = new GsonBuilder()
-        .registerTypeAdapter(ModMetadata.class, (JsonDeserializer<ModMetadata>) ModMetadata::deserialize)
+        .registerTypeAdapter(ModMetadata.class, ModMetadata.ADAPTER)
         .create();
+    // Opening jars and parsing metadata is IO bound, so it uses its own pool instead of the common pool
+    private static final ExecutorService JAR_SCANNER =
+        new ForkJoinPool(Math.min(8, Runtime.getRuntime().availableProcessors() * 2));
     private final Map<IProject, CompletableFuture<ProjectEnvironment>> environments = new ConcurrentHashMap<>();
 
     public CompletableFuture<ProjectEnvironment> getProjectEnvironment(IProject project)
     {
-        return environments.computeIfAbsent(project, iProject -> CompletableFuture.supplyAsync(() ->
+        return environments.computeIfAbsent(project, this::scheduleScan);
+    }
+
+    private CompletableFuture<ProjectEnvironment> scheduleScan(IProject project)
+    {
+        CompletableFuture<ProjectEnvironment> environment = Jobs.schedule(
+            "Scanning classpath of " + project.getName(), project, monitor ->
+            {
+                ProjectEnvironment scanned = createEnvironment(project, monitor);
+                if (Fabriclipse.getDefault() != null)
+                    ModMetadataCache.INSTANCE.save(Fabriclipse.getDefault().getStateLocation());
+                return scanned;
+            });
+        // Forget failed or cancelled scans, so they're retried next time
+        environment.whenComplete((scanned, e) ->
         {
-            ProjectEnvironment environment = new ProjectEnvironment(iProject);
-            IFile fabricModJson = iProject.getFile(FABRIC_MOD_JSON);
-            if (fabricModJson.exists())
-                environment.setProjectMod(new ProjectMod(readModMetadata(fabricModJson), project));
+            if (e != null)
+                environments.remove(project, environment);
+        });
+        return environment;
+    }
 
-            IJavaProject javaProject = JavaCore.create(iProject);
-            try
+    // The environment is rescanned on next use
+    public void forget(IProject project)
+    {
+        CompletableFuture<ProjectEnvironment> environment = environments.remove(project);
+        if (environment != null)
+            environment.cancel(false);
+        OpenJarCache.INSTANCE.closeIdle();
+    }
+
+    private ProjectEnvironment createEnvironment(IProject project, IProgressMonitor monitor)
+    {
+        ProjectEnvironment environment = new ProjectEnvironment(project);
+        IFile fabricModJson = project.getFile(FABRIC_MOD_JSON);
+        if (fabricModJson.exists())
+            environment.setProjectMod(new ProjectMod(readModMetadata(fabricModJson), project));
+
+        scanJars(environment, resolveJars(project), monitor);
+        environment.selectNestedMods();
+        return environment;
+    }
+
+    // Rescans jars that were added or changed, and drops jars that were removed or changed
+    private void updateEnvironment(ProjectEnvironment environment, IProgressMonitor monitor)
+    {
+        IProject project = environment.project;
+        Map<IPath, Mod> modsBefore = Map.copyOf(environment.classpathMods);
+        List<IPath> jars = resolveJars(project);
+        Set<IPath> classpath = new HashSet<>(jars);
+        for (IPath jar : List.copyOf(environment.scannedJars.keySet()))
+        {
+            if (!classpath.contains(jar))
+                environment.removeJar(jar);
+        }
+        List<IPath> rescan = new ArrayList<>();
+        for (IPath jar : jars)
+        {
+            if (!JarFingerprint.of(jar).equals(environment.scannedJars.get(jar)))
             {
-                for (IClasspathEntry entry : javaProject.getResolvedClasspath(true))
-                {
-                    if ("jar".equals(entry.getPath().getFileExtension()))
-                        processJar(environment, entry.getPath());
-                }
+                environment.removeJar(jar);
+                rescan.add(jar);
             }
-            catch (JavaModelException e)
+        }
+        scanJars(environment, rescan, monitor);
+        environment.selectNestedMods();
+
+        List<Mod> removed = new ArrayList<>();
+        for (Map.Entry<IPath, Mod> before : modsBefore.entrySet())
+        {
+            if (environment.classpathMods.get(before.getKey()) != before.getValue())
             {
-                Fabriclipse.LOGGER.error("Classpath resolution failed", e);
+                removed.add(before.getValue());
+                if (before.getValue() instanceof JarMod jarMod)
+                    OpenJarCache.INSTANCE.evict(jarMod.getFingerprint());
             }
-            return environment;
-        }));
+        }
+        List<Mod> added = new ArrayList<>();
+        for (Map.Entry<IPath, Mod> after : environment.classpathMods.entrySet())
+        {
+            if (modsBefore.get(after.getKey()) != after.getValue())
+                added.add(after.getValue());
+        }
+        if (!removed.isEmpty() || !added.isEmpty())
+            MixinStore.INSTANCE.classpathChanged(project, removed, added);
+    }
+
+    private static List<IPath> resolveJars(IProject project)
+    {
+        IJavaProject javaProject = JavaCore.create(project);
+        List<IPath> jars = new ArrayList<>();
+        try
+        {
+            for (IClasspathEntry entry : javaProject.getResolvedClasspath(true))
+            {
+                if ("jar".equals(entry.getPath().getFileExtension()))
+                    jars.add(entry.getPath());
+            }
+        }
+        catch (JavaModelException e)
+        {
+            Fabriclipse.LOGGER.error("Classpath resolution failed", e);
+        }
+        return jars;
+    }
+
+    private void scanJars(ProjectEnvironment environment, List<IPath> jars, IProgressMonitor monitor)
+    {
+        SubMonitor progress = SubMonitor.convert(monitor, jars.size());
+        List<CompletableFuture<Void>> scans = new ArrayList<>(jars.size());
+        for (IPath jar : jars)
+            scans.add(CompletableFuture.runAsync(() -> processJar(environment, jar), JAR_SCANNER));
+        try
+        {
+            for (CompletableFuture<Void> scan : scans)
+            {
+                progress.split(1);
+                scan.join();
+            }
+        }
+        catch (OperationCanceledException e)
+        {
+            // Jars that haven't started scanning are skipped
+            for (CompletableFuture<Void> scan : scans)
+                scan.cancel(false);
+            throw e;
+        }
     }
 
     private void processJar(ProjectEnvironment environment, IPath jarPath)
@@ -79,32 +202,147 @@ public class ProjectEnvironmentManager implements IResourceChangeListener
         File jarFile = jarPath.toFile();
         if (!jarFile.exists())
             return;
-        try (JarFile jar = new JarFile(jarFile))
+        JarFingerprint fingerprint = JarFingerprint.of(jarPath);
+        environment.scannedJars.put(jarPath, fingerprint);
+        try
+        {
+            Optional<ModMetadata> metadata = ModMetadataCache.INSTANCE.get(fingerprint, () -> readJarMetadata(fingerprint));
+            if (metadata.isPresent())
+            {
+                JarMod mod = new JarMod(metadata.get(), jarPath, fingerprint);
+                environment.addMod(jarPath, mod);
+                processNestedJars(environment, mod);
+            }
+        }
+        catch (IOException | JsonParseException e)
+        {
+            Fabriclipse.LOGGER.error("Reading " + jarFile, e);
+        }
+    }
+
+    // Jar-in-jar mods are read from memory, recursively. A broken nested jar doesn't affect the others.
+    private void processNestedJars(ProjectEnvironment environment, JarMod container)
+    {
+        for (String entryName : container.getMetadata().getNestedJars())
         {
-            JarEntry jarModMetadata = jar.getJarEntry("fabric.mod.json");
+            JarFingerprint fingerprint = container.getFingerprint().nested(entryName);
+            try
+            {
+                Optional<ModMetadata> metadata = ModMetadataCache.INSTANCE.get(fingerprint,
+                    () -> readNestedJarMetadata(container, entryName, fingerprint));
+                if (metadata.isPresent())
+                {
+                    NestedJarMod mod = new NestedJarMod(metadata.get(), container, entryName, fingerprint);
+                    environment.addNestedMod(mod.getJarPath(), mod);
+                    processNestedJars(environment, mod);
+                }
+            }
+            catch (IOException | JsonParseException e)
+            {
+                Fabriclipse.LOGGER.error("Reading " + entryName + " in " + container.getJarPath().toOSString(), e);
+            }
+        }
+    }
+
+    private ModMetadata readNestedJarMetadata(JarMod container, String entryName, JarFingerprint fingerprint)
+        throws IOException
+    {
+        InputStream modMetadata = NestedJarMod.archive(container, entryName, fingerprint).open("fabric.mod.json");
+        if (modMetadata == null)
+            return null;
+        try (Reader reader = new InputStreamReader(modMetadata))
+        {
+            return GSON.fromJson(reader, ModMetadata.class);
+        }
+    }
+
+    private ModMetadata readJarMetadata(JarFingerprint fingerprint) throws IOException
+    {
+        ModMetadata metadata = null;
+        try (Lease lease = OpenJarCache.INSTANCE.acquire(fingerprint))
+        {
+            JarEntry jarModMetadata = lease.jar().getJarEntry("fabric.mod.json");
             if (jarModMetadata != null)
             {
-                try (Reader reader = new InputStreamReader(jar.getInputStream(jarModMetadata)))
+                try (Reader reader = new InputStreamReader(lease.jar().getInputStream(jarModMetadata)))
                 {
-                    environment.addMod(jarPath,
-                        new JarMod(GSON.fromJson(reader, ModMetadata.class), jarPath));
+                    metadata = GSON.fromJson(reader, ModMetadata.class);
                 }
             }
         }
-        catch (IOException e)
+        finally
         {
-            Fabriclipse.LOGGER.error("Reading " + jarFile, e);
+            // Mixin configs will be read from mod jars later, other jars won't be read again
+            if (metadata == null)
+                OpenJarCache.INSTANCE.evict(fingerprint);
         }
+        return metadata;
+    }
+
+    @Override
+    public void elementChanged(ElementChangedEvent event)
+    {
+        for (IJavaElementDelta projectDelta : event.getDelta().getAffectedChildren())
+        {
+            if (projectDelta.getElement() instanceof IJavaProject javaProject && affectsJars(projectDelta))
+                classpathChanged(javaProject.getProject());
+        }
+    }
+
+    private static boolean affectsJars(IJavaElementDelta projectDelta)
+    {
+        if ((projectDelta.getFlags() & IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED) != 0)
+            return true;
+        // Jars replaced in place, e.g. by a Gradle refresh
+        for (IJavaElementDelta rootDelta : projectDelta.getAffectedChildren())
+        {
+            if ((rootDelta.getFlags() & IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    private void classpathChanged(IProject project)
+    {
+        CompletableFuture<ProjectEnvironment> environment = environments.get(project);
+        // Not scanned yet, so the scan will see the new classpath
+        if (environment == null || environment.isCompletedExceptionally())
+            return;
+        // Jobs of a project run one at a time, so a scan in progress finishes before the update starts
+        Jobs.schedule("Updating classpath of " + project.getName(), project, monitor ->
+        {
+            // A failed or cancelled scan is forgotten, and the next request rescans the new classpath
+            if (environment.isCompletedExceptionally())
+                return null;
+            updateEnvironment(environment.join(), monitor);
+            if (Fabriclipse.getDefault() != null)
+                ModMetadataCache.INSTANCE.save(Fabriclipse.getDefault().getStateLocation());
+            return null;
+        });
     }
 
     @Override
     public void resourceChanged(IResourceChangeEvent event)
     {
-        for (IResourceDelta projectDelta : event.getDelta().getAffectedChildren())
+        switch (event.getType())
+        {
+        // Abort scanning and indexing of projects that are going away, and free their caches
+        case IResourceChangeEvent.PRE_CLOSE, IResourceChangeEvent.PRE_DELETE ->
         {
-            IResourceDelta fabricModJson = projectDelta.findMember(FABRIC_MOD_JSON);
-            if (fabricModJson != null && fabricModJson.getResource() instanceof IFile metadataFile)
-                processMetadataFile(fabricModJson, metadataFile);
+            IProject project = (IProject) event.getResource();
+            Jobs.cancel(project);
+            forget(project);
+            MixinStore.INSTANCE.forget(project, event.getType() == IResourceChangeEvent.PRE_DELETE);
+        }
+        case IResourceChangeEvent.POST_CHANGE ->
+        {
+            for (IResourceDelta projectDelta : event.getDelta().getAffectedChildren())
+            {
+                IResourceDelta fabricModJson = projectDelta.findMember(FABRIC_MOD_JSON);
+                if (fabricModJson != null && fabricModJson.getResource() instanceof IFile metadataFile)
+                    processMetadataFile(fabricModJson, metadataFile);
+            }
+        }
         }
     }
 
@@ -183,7 +421,12 @@ public class ProjectEnvironmentManager implements IResourceChangeListener
     {
         private final IProject project;
         private Mod projectMod;
+        // Mods on the classpath, and the nested mods selected from those
         private final Map<IPath, Mod> classpathMods = new ConcurrentHashMap<>();
+        // All nested mods, including those that duplicate another mod
+        private final Map<IPath, NestedJarMod> nestedMods = new ConcurrentHashMap<>();
+        // All jars on the classpath when last scanned, including those that aren't mods
+        private final Map<IPath, JarFingerprint> scannedJars = new ConcurrentHashMap<>();
 
         ProjectEnvironment(IProject project)
         {
@@ -204,5 +447,39 @@ public class ProjectEnvironmentManager implements IResourceChangeListener
         {
             this.classpathMods.put(modPath, mod);
         }
+
+        void addNestedMod(IPath modPath, NestedJarMod mod)
+        {
+            this.nestedMods.put(modPath, mod);
+        }
+
+        // Nested mods are under the path of their container, so they're removed with it
+        void removeJar(IPath jarPath)
+        {
+            scannedJars.remove(jarPath);
+            classpathMods.keySet().removeIf(jarPath::isPrefixOf);
+            nestedMods.keySet().removeIf(jarPath::isPrefixOf);
+        }
+
+        // Mods are often both on the classpath and nested, or nested in several jars. Like Fabric Loader,
+        // only one mod per id is kept, preferring the project and classpath over nested mods.
+        void selectNestedMods()
+        {
+            classpathMods.values().removeIf(mod -> mod instanceof NestedJarMod);
+            Set<String> ids = new HashSet<>();
+            if (projectMod != null)
+                ids.add(projectMod.getMetadata().getId());
+            for (Mod mod : classpathMods.values())
+                ids.add(mod.getMetadata().getId());
+            // Shallowest first, then by path, so the choice doesn't depend on scan order
+            List<NestedJarMod> candidates = new ArrayList<>(nestedMods.values());
+            candidates.sort(Comparator.comparingInt((NestedJarMod mod) -> mod.getJarPath().segmentCount())
+                .thenComparing(mod -> mod.getJarPath().toPortableString()));
+            for (NestedJarMod mod : candidates)
+            {
+                if (ids.add(mod.getMetadata().getId()))
+                    classpathMods.put(mod.getJarPath(), mod);
+            }
+        }
     }
 }
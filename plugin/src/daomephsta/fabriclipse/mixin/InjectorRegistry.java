@@ -0,0 +1,81 @@
+package daomephsta.fabriclipse.mixin;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.RegistryFactory;
+
+import daomephsta.fabriclipse.Fabriclipse;
+
+// Injector annotations by name. Mixin's own injectors are built in, others are contributed
+// through the injectors extension point, which is read on first use.
+class InjectorRegistry
+{
+    static final InjectorRegistry INSTANCE = new InjectorRegistry();
+    private static final String EXTENSION_POINT = "daomephsta.fabriclipse.injectors";
+    private static final String[] BUILT_IN = {"Inject", "ModifyArg", "ModifyArgs", "ModifyConstant",
+        "ModifyVariable", "Redirect"};
+    private volatile Injectors injectors;
+
+    // targetMember is the annotation member holding the target selectors
+    record Injector(String annotation, String label, String targetMember) {}
+
+    // Binary annotations are named by qualified name. Source annotations are named as written, usually by simple name.
+    private record Injectors(Map<String, Injector> byName, Map<String, Injector> bySimpleName) {}
+
+    // Null if the annotation isn't an injector
+    Injector get(String annotationName)
+    {
+        Injectors current = injectors;
+        if (current == null)
+        {
+            synchronized (this)
+            {
+                if (injectors == null)
+                    injectors = load();
+                current = injectors;
+            }
+        }
+        Injector injector = current.byName().get(annotationName);
+        if (injector == null && annotationName.indexOf('.') == -1)
+            injector = current.bySimpleName().get(annotationName);
+        return injector;
+    }
+
+    private static Injectors load()
+    {
+        Injectors loaded = new Injectors(new HashMap<>(), new HashMap<>());
+        for (String name : BUILT_IN)
+            register(loaded, "org.spongepowered.asm.mixin.injection." + name, null, null);
+        // Not available outside OSGi, e.g. in tests and benchmarks
+        IExtensionRegistry registry = RegistryFactory.getRegistry();
+        if (registry != null)
+        {
+            for (IConfigurationElement element : registry.getConfigurationElementsFor(EXTENSION_POINT))
+            {
+                String annotation = element.getAttribute("annotation");
+                if (annotation == null)
+                {
+                    Fabriclipse.LOGGER.warn("Injector without an annotation from " +
+                        element.getContributor().getName());
+                    continue;
+                }
+                register(loaded, annotation, element.getAttribute("label"), element.getAttribute("targetMember"));
+            }
+        }
+        return loaded;
+    }
+
+    private static void register(Injectors injectors, String annotation, String label, String targetMember)
+    {
+        String simpleName = annotation.substring(annotation.lastIndexOf('.') + 1);
+        var injector = new Injector(annotation, label != null ? label : "@" + simpleName,
+            targetMember != null ? targetMember : "method");
+        injectors.byName().put(annotation, injector);
+        // Source annotations with a simple name shared by several injectors, like MixinExtras' old and new
+        // @WrapWithCondition, are taken to be the first
+        injectors.bySimpleName().putIfAbsent(simpleName, injector);
+    }
+}
@@ -1,104 +1,82 @@
 package daomephsta.fabriclipse.mixin;
 
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
-import org.eclipse.jdt.core.IJavaElement;
-import org.eclipse.jdt.core.IMethod;
-import org.eclipse.jdt.core.IType;
-import org.eclipse.jdt.core.ITypeParameter;
-import org.eclipse.jdt.core.JavaModelException;
-import org.eclipse.jdt.core.Signature;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
+import daomephsta.fabriclipse.mixin.TypeMembers.IndexedMethod;
+
+// Immutable, so parsed specs are shared and may be matched from several threads at once
 public class MethodSpec
 {
-    private static final Pattern PATTERN = Pattern.compile(
-        "(?<owner>L[A-z$_0-9\\x{00C0}-\\x{FFFF}\\/]+;)?" +
-        "(?<name>[A-z$_0-9\\/\\x{00C0}-\\x{FFFF}<>]+)?" +
-        "(?<quantifier>\\*|\\+|\\{\\d?,?\\d?\\})?" +
-        "(?<desc>\\([A-z$_0-9\\/\\x{00C0}-\\x{FFFF};]*\\)[A-z$_0-9\\/\\x{00C0}-\\x{FFFF};]+)?");
+    // Raw selector -> parsed selector
+    private static final Cache<String, MethodSpec> PARSED = CacheBuilder.newBuilder()
+        .maximumSize(8192)
+        .build();
     final String owner, name;
     final String[] parameterTypes;
     final String returnType;
     final Quantifier quantifier;
     final String raw;
 
-    private MethodSpec(String owner, String name, Quantifier quantifier, String descriptor, String raw)
+    private MethodSpec(String owner, String name, String[] parameterTypes, String returnType,
+        Quantifier quantifier, String raw)
     {
         this.owner = owner;
         this.name = name;
-        if (descriptor != null)
-        {
-            this.parameterTypes = Signature.getParameterTypes(descriptor);
-            this.returnType = Signature.getReturnType(descriptor);
-        }
-        else
-        {
-            this.parameterTypes = null;
-            this.returnType = null;
-        }
+        this.parameterTypes = parameterTypes;
+        this.returnType = returnType;
         this.quantifier = quantifier;
         this.raw = raw;
     }
 
-    public boolean matches(IType candidateOwner, IMethod candidate) throws JavaModelException
+    // Candidates must be in declaration order and have the right name, i.e. come from TypeMembers.named()
+    List<IndexedMethod> select(List<IndexedMethod> candidates)
     {
-        if (name != null && !name.equals(candidate.getElementName()) &&
-            !name.equals("<init>") && !candidate.getElementName().equals(candidateOwner.getElementName()))
+        List<IndexedMethod> selected = null;
+        int index = 1;
+        for (IndexedMethod candidate : candidates)
         {
-            return false;
+            if (!matchesDescriptor(candidate))
+                continue;
+            if (quantifier.selects(index))
+            {
+                if (selected == null)
+                    selected = new ArrayList<>();
+                selected.add(candidate);
+            }
+            if (quantifier.isExhausted(index))
+                break;
+            index += 1;
         }
+        return selected != null ? selected : Collections.emptyList();
+    }
+
+    private boolean matchesDescriptor(IndexedMethod candidate)
+    {
         if (parameterTypes != null)
         {
-            if (candidate.getNumberOfParameters() != parameterTypes.length)
+            String[] candidateTypes = candidate.erasedParameterTypes();
+            if (candidateTypes.length != parameterTypes.length)
                 return false;
             for (int i = 0; i < parameterTypes.length; i++)
             {
-                String erased = erase(candidate, candidate.getParameterTypes()[i]);
-                if (!areTypesEqual(erased, parameterTypes[i]))
+                if (!areTypesEqual(candidateTypes[i], parameterTypes[i]))
                     return false;
             }
         }
-        if (!quantifier.matches())
-            return false;
         return true;
     }
 
-    public void assertSatisfied(String context)
+    public void assertSatisfied(int matches, String context)
     {
-        quantifier.assertSatisfied(context);
+        quantifier.assertSatisfied(matches, context);
     }
 
-    private static String erase(IMethod candidate, String signature) throws JavaModelException
-    {
-        if (Signature.getTypeSignatureKind(signature) == Signature.TYPE_VARIABLE_SIGNATURE)
-        {
-            ITypeParameter typeParameter = findTypeParameter(candidate, Signature.getSignatureSimpleName(signature));
-            String[] bounds = typeParameter.getBoundsSignatures();
-            if (bounds.length == 0)
-                return Signature.createTypeSignature(Object.class.getName(), true);
-            // Erasure always uses the first bound
-            return erase(candidate, bounds[0]);
-        }
-        return Signature.getTypeErasure(signature);
-    }
-
-    private static ITypeParameter findTypeParameter(IMethod candidate, String signature)
-    {
-        ITypeParameter typeParameter = null;
-        IJavaElement element = candidate;
-        do
-        {
-            if (element instanceof IMethod method)
-                typeParameter = method.getTypeParameter(signature);
-            else if (element instanceof IType type)
-                typeParameter = type.getTypeParameter(signature);
-            element = element.getParent();
-        }
-        while (!typeParameter.exists() && element.getParent() != null);
-        return typeParameter;
-    }
-
-    private static boolean areTypesEqual(String typeA, String typeB)
+    static boolean areTypesEqual(String typeA, String typeB)
     {
         if (typeA.length() != typeB.length())
             return false;
@@ -116,27 +94,138 @@ public class MethodSpec
 
     public static MethodSpec parse(String methodSpec)
     {
-        // Easiest way to handle dot-separated owners
-        String toParse = methodSpec,
-               owner = null;
-        int lastDot = methodSpec.lastIndexOf('.');
-        if (lastDot != -1)
+        MethodSpec parsed = PARSED.getIfPresent(methodSpec);
+        if (parsed == null)
+        {
+            parsed = new Parser(methodSpec).parse();
+            PARSED.put(methodSpec, parsed);
+        }
+        return parsed;
+    }
+
+    // Single pass parser for owner, name, quantifier and descriptor
+    private static class Parser
+    {
+        private final String spec;
+        private int position = 0;
+
+        private Parser(String spec)
+        {
+            this.spec = spec;
+        }
+
+        MethodSpec parse()
+        {
+            int descriptorStart = spec.indexOf('(');
+            int end = descriptorStart != -1 ? descriptorStart : spec.length();
+            String owner = parseOwner(end);
+            String name = parseName();
+            Quantifier quantifier = parseQuantifier();
+            String[] parameterTypes = null;
+            String returnType = null;
+            if (position < spec.length())
+            {
+                if (position != descriptorStart)
+                    throw invalid();
+                position += 1;
+                List<String> parameters = new ArrayList<>();
+                while (position < spec.length() && spec.charAt(position) != ')')
+                    parameters.add(parseType(false));
+                if (position == spec.length())
+                    throw invalid();
+                position += 1;
+                parameterTypes = parameters.toArray(String[]::new);
+                returnType = parseType(true);
+                if (position != spec.length())
+                    throw invalid();
+            }
+            return new MethodSpec(owner, name, parameterTypes, returnType, quantifier, spec);
+        }
+
+        private String parseOwner(int end)
+        {
+            if (spec.startsWith("L"))
+            {
+                int semicolon = spec.indexOf(';');
+                if (semicolon != -1 && semicolon < end)
+                {
+                    position = semicolon + 1;
+                    return spec.substring(0, position);
+                }
+            }
+            // Dot separated owner, e.g. foo.bar.Baz.func_1234_a
+            int lastDot = spec.lastIndexOf('.', end - 1);
+            if (lastDot != -1)
+            {
+                position = lastDot + 1;
+                return spec.substring(0, lastDot);
+            }
+            return null;
+        }
+
+        private String parseName()
+        {
+            int start = position;
+            while (position < spec.length() && !isNameTerminator(spec.charAt(position)))
+                position += 1;
+            return position > start ? spec.substring(start, position) : null;
+        }
+
+        private static boolean isNameTerminator(char c)
         {
-            toParse = methodSpec.substring(lastDot + 1);
-            owner = methodSpec.substring(0, lastDot);
+            return c == '*' || c == '+' || c == '{' || c == '(';
         }
-        var matcher = PATTERN.matcher(toParse);
-        if (matcher.matches())
+
+        private Quantifier parseQuantifier()
+        {
+            int start = position;
+            if (position < spec.length())
+            {
+                char c = spec.charAt(position);
+                if (c == '*' || c == '+')
+                    position += 1;
+                else if (c == '{')
+                {
+                    int close = spec.indexOf('}', position);
+                    if (close == -1)
+                        throw invalid();
+                    position = close + 1;
+                }
+            }
+            return position > start ? Quantifier.parse(spec, start, position) : Quantifier.parse(null);
+        }
+
+        private String parseType(boolean allowVoid)
+        {
+            int start = position;
+            while (position < spec.length() && spec.charAt(position) == '[')
+                position += 1;
+            if (position == spec.length())
+                throw invalid();
+            switch (spec.charAt(position))
+            {
+            case 'Z', 'B', 'C', 'S', 'I', 'J', 'F', 'D' -> position += 1;
+            case 'V' ->
+            {
+                if (!allowVoid || position != start)
+                    throw invalid();
+                position += 1;
+            }
+            case 'L' ->
+            {
+                int semicolon = spec.indexOf(';', position);
+                if (semicolon == -1)
+                    throw invalid();
+                position = semicolon + 1;
+            }
+            default -> throw invalid();
+            }
+            return spec.substring(start, position);
+        }
+
+        private IllegalArgumentException invalid()
         {
-            if (owner == null)
-                owner = matcher.group("owner");
-            return new MethodSpec(
-                owner,
-                matcher.group("name"),
-                Quantifier.parse(matcher.group("quantifier")),
-                matcher.group("desc"),
-                methodSpec);
+            return new IllegalArgumentException("Invalid target method " + spec);
         }
-        throw new IllegalArgumentException("Invalid target method " + methodSpec);
     }
 }
@@ -0,0 +1,84 @@
+package daomephsta.fabriclipse.mixin;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.runtime.Adapters;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.IClassFile;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.source.ISourceViewerExtension5;
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.IEditorReference;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.progress.UIJob;
+
+// Updates the minings of editors showing targets whose mixins changed. Targets are collected
+// until the job runs, so a build that touches many mixins updates each editor once.
+class MiningRefresh extends UIJob
+{
+    private static final long DELAY_MILLIS = 200;
+    private final Set<String> changedTargets = ConcurrentHashMap.newKeySet();
+
+    MiningRefresh()
+    {
+        super("Updating mixin code minings");
+        setSystem(true);
+    }
+
+    void request(Collection<String> targets)
+    {
+        if (targets.isEmpty() || !PlatformUI.isWorkbenchRunning())
+            return;
+        changedTargets.addAll(targets);
+        // Scheduling while running runs the job again afterwards, so late requests aren't lost
+        schedule(DELAY_MILLIS);
+    }
+
+    @Override
+    public IStatus runInUIThread(IProgressMonitor monitor)
+    {
+        Set<String> targets = new HashSet<>();
+        for (Iterator<String> iter = changedTargets.iterator(); iter.hasNext();)
+        {
+            targets.add(iter.next());
+            iter.remove();
+        }
+        if (targets.isEmpty())
+            return Status.OK_STATUS;
+        for (IWorkbenchWindow window : PlatformUI.getWorkbench().getWorkbenchWindows())
+        {
+            for (IWorkbenchPage page : window.getPages())
+            {
+                for (IEditorReference reference : page.getEditorReferences())
+                {
+                    // Editors that haven't been restored compute their minings when they are
+                    IEditorPart editor = reference.getEditor(false);
+                    if (editor != null && showsTarget(editor, targets) &&
+                        editor.getAdapter(ITextViewer.class) instanceof ISourceViewerExtension5 viewer)
+                    {
+                        viewer.updateCodeMinings();
+                    }
+                }
+            }
+        }
+        return Status.OK_STATUS;
+    }
+
+    private static boolean showsTarget(IEditorPart editor, Set<String> targets)
+    {
+        IClassFile classFile = Adapters.adapt(editor.getEditorInput(), IClassFile.class);
+        IType type = classFile != null ? classFile.findPrimaryType() : null;
+        // Nested targets may be named either way
+        return type != null && (targets.contains(type.getFullyQualifiedName('.')) ||
+            targets.contains(type.getFullyQualifiedName()));
+    }
+}
@@ -1,52 +1,55 @@
 package daomephsta.fabriclipse.mixin;
 
-import static java.util.stream.Collectors.toSet;
-
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.function.Consumer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Stream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
 
 import org.eclipse.core.commands.AbstractHandler;
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.Adapters;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.jdt.core.Flags;
-import org.eclipse.jdt.core.IAnnotation;
 import org.eclipse.jdt.core.IClassFile;
 import org.eclipse.jdt.core.IField;
 import org.eclipse.jdt.core.IJavaProject;
-import org.eclipse.jdt.core.IMemberValuePair;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.ISourceRange;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaModelException;
-import org.eclipse.jdt.core.Signature;
 import org.eclipse.jdt.core.SourceRange;
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextSelection;
 import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.TextSelection;
 import org.eclipse.jface.text.codemining.AbstractCodeMiningProvider;
 import org.eclipse.jface.text.codemining.ICodeMining;
 import org.eclipse.jface.text.codemining.ICodeMiningProvider;
+import org.eclipse.jface.text.source.ISourceViewerExtension5;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.events.SelectionListener;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Menu;
@@ -58,25 +61,44 @@ import org.eclipse.ui.handlers.HandlerUtil;
 import org.eclipse.ui.texteditor.ITextEditor;
 import org.osgi.service.prefs.BackingStoreException;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import daomephsta.fabriclipse.Fabriclipse;
+import daomephsta.fabriclipse.mixin.MixinHandlers.Handler;
 import daomephsta.fabriclipse.mixin.MixinStore.MixinInfo;
-import daomephsta.fabriclipse.util.JdtAnnotations;
+import daomephsta.fabriclipse.mixin.MixinStore.TargetMixins;
+import daomephsta.fabriclipse.mixin.TypeMembers.IndexedMethod;
 import daomephsta.fabriclipse.util.codemining.ToggleableCodeMining;
 
 public class MixinCodeMiningProvider extends AbstractCodeMiningProvider
 {
-    private static final Set<String> INJECTORS = Stream.of(
-        "Inject", "ModifyArg", "ModifyArgs", "ModifyConstant", "ModifyVariable", "Redirect")
-        .map("org.spongepowered.asm.mixin.injection."::concat).collect(toSet());
-    private static final Pattern INVOKER_TARGET = Pattern.compile("(?:call|invoke)([\\w$\\-])([\\w$\\-]+)"),
-                                 ACCESSOR_TARGET = Pattern.compile("(?:get|set|is)([\\w$\\-]+)");
     private static final String
         PREF_QUALIFIER = "daomephsta.fabriclipse.mixin",
         PREF_KEY = "minings",
         FULL_PREF_KEY = PREF_QUALIFIER + '.' + PREF_KEY;
+    // Class file handle identifier -> minings for the latest version of its mixins
+    private static final Cache<String, CachedMinings> MINING_CACHE = CacheBuilder.newBuilder()
+        .maximumSize(64)
+        .build();
+    // Minings are computed off the UI thread, but never by more than a few threads at once
+    private static final ExecutorService MINING_EXECUTOR;
+    static
+    {
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        var executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("Fabriclipse code minings %d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        MINING_EXECUTOR = executor;
+    }
+    // Beyond this many minings, those away from the visible lines are left to a follow-up pass
+    private static final int PROGRESSIVE_THRESHOLD = 64;
+    // The latest request of each viewer, superseded by the next
+    private final Map<ITextViewer, MiningRequest> inFlight = new MapMaker().weakKeys().makeMap();
 
     @Override
     public CompletableFuture<List<? extends ICodeMining>>
@@ -91,24 +113,186 @@ public class MixinCodeMiningProvider extends AbstractCodeMiningProvider
         IJavaProject javaProject = openClass.get().getJavaProject();
         if (openType == null || javaProject == null)
             return CompletableFuture.completedFuture(Collections.emptyList());
-        return MixinStore.INSTANCE.mixinsFor(javaProject.getProject(), openType.getFullyQualifiedName('.'))
-            .thenApplyAsync(mixins -> computeMinings(mixins, viewer.getDocument(), openType));
+        String cacheKey = openClass.get().getHandleIdentifier();
+        MiningRequest request = new MiningRequest(monitor);
+        IRegion visible = visibleRegion(viewer);
+        request.result = MixinStore.INSTANCE.mixinsFor(javaProject.getProject(), openType.getFullyQualifiedName('.'))
+            .thenApplyAsync(mixins -> computeMinings(cacheKey, mixins, viewer, visible, openType, request),
+                MINING_EXECUTOR);
+        MiningRequest previous = inFlight.put(viewer, request);
+        if (previous != null)
+            previous.supersede();
+        request.result.whenComplete((minings, e) -> inFlight.remove(viewer, request));
+        return request.result;
+    }
+
+    // Cancelled by the viewer, or when a newer request for the same viewer arrives
+    private static class MiningRequest extends ProgressMonitorWrapper
+    {
+        private volatile boolean cancelled = false;
+        private CompletableFuture<List<? extends ICodeMining>> result;
+
+        MiningRequest(IProgressMonitor monitor)
+        {
+            super(monitor != null ? monitor : new NullProgressMonitor());
+        }
+
+        // The viewer's monitor throws CancellationException once cancelled, instead of returning true
+        @Override
+        public boolean isCanceled()
+        {
+            if (cancelled)
+                return true;
+            try
+            {
+                if (super.isCanceled())
+                    cancelled = true;
+            }
+            catch (CancellationException e)
+            {
+                cancelled = true;
+            }
+            return cancelled;
+        }
+
+        // Safe on the UI thread, as it doesn't ask the viewer's monitor
+        boolean wasCancelled()
+        {
+            return cancelled;
+        }
+
+        void supersede()
+        {
+            cancelled = true;
+            result.cancel(false);
+        }
+    }
+
+    static void forget(IProject project)
+    {
+        MINING_CACHE.asMap().keySet().removeIf(handle -> MixinStore.belongsTo(handle, project));
     }
 
     record Injection(String type, IMethod handler, MethodSpec target) {}
 
-    private List<? extends ICodeMining> computeMinings(Collection<MixinInfo> mixins, IDocument document, IType openType)
+    // Everything needed to create a mining, except the document
+    record MiningDescriptor(int offset, String label, Collection<IMethod> handlers) {}
+
+    private record CachedMinings(long version, List<MiningDescriptor> descriptors) {}
+
+    // Targets found in the open type, before their source ranges are looked up
+    private record MiningData(Multimap<MethodMiningKey, IMethod> methods, Multimap<FieldMiningKey, IMethod> fields)
     {
-        Multimap<MethodMiningKey, IMethod> methodMinings = HashMultimap.create();
-        Multimap<FieldMiningKey, IMethod> fieldMinings = HashMultimap.create();
-        gatherMiningData(mixins, openType, methodMinings, fieldMinings);
-        List<ICodeMining> minings = new ArrayList<>();
-        computeMethodMinings(document, methodMinings, minings);
-        computeFieldMinings(document, fieldMinings, minings);
+        int size()
+        {
+            return methods.keySet().size() + fields.keySet().size();
+        }
+    }
+
+    private List<? extends ICodeMining> computeMinings(String cacheKey, TargetMixins mixins, ITextViewer viewer,
+        IRegion visible, IType openType, MiningRequest request)
+    {
+        CachedMinings cached = MINING_CACHE.getIfPresent(cacheKey);
+        if (cached != null && cached.version() == mixins.version())
+            return createCodeMinings(cached.descriptors(), viewer.getDocument(), request);
+        MiningData data = gatherMiningData(mixins.mixins(), openType, request);
+        checkCanceled(request);
+        if (visible == null || data.size() <= PROGRESSIVE_THRESHOLD)
+        {
+            List<MiningDescriptor> descriptors = computeDescriptors(data, offset -> true);
+            MINING_CACHE.put(cacheKey, new CachedMinings(mixins.version(), descriptors));
+            return createCodeMinings(descriptors, viewer.getDocument(), request);
+        }
+        // Minings near the visible lines are shown first. The rest are cached by a follow-up pass,
+        // which then updates the viewer so that all minings are shown.
+        IntPredicate isVisible = offset -> offset >= visible.getOffset() &&
+            offset <= visible.getOffset() + visible.getLength();
+        List<MiningDescriptor> first = computeDescriptors(data, isVisible);
+        CompletableFuture.runAsync(() ->
+        {
+            checkCanceled(request);
+            List<MiningDescriptor> descriptors = new ArrayList<>(first);
+            descriptors.addAll(computeDescriptors(data, isVisible.negate()));
+            MINING_CACHE.put(cacheKey, new CachedMinings(mixins.version(), List.copyOf(descriptors)));
+            checkCanceled(request);
+            StyledText widget = viewer.getTextWidget();
+            if (widget != null && !widget.isDisposed())
+            {
+                widget.getDisplay().asyncExec(() ->
+                {
+                    if (!widget.isDisposed() && !request.wasCancelled() && viewer instanceof ISourceViewerExtension5 sve5)
+                        sve5.updateCodeMinings();
+                });
+            }
+        }, MINING_EXECUTOR).whenComplete((unused, e) ->
+        {
+            if (e != null && !(e.getCause() instanceof OperationCanceledException))
+                Fabriclipse.LOGGER.error("Computing code minings of " + openType.getFullyQualifiedName(), e);
+        });
+        return createCodeMinings(first, viewer.getDocument(), request);
+    }
+
+    // Document offsets of the visible lines, and a screen either side. Null off the UI thread.
+    private static IRegion visibleRegion(ITextViewer viewer)
+    {
+        StyledText widget = viewer.getTextWidget();
+        if (widget == null || widget.isDisposed() || Display.getCurrent() == null)
+            return null;
+        int top = viewer.getTopIndexStartOffset(), bottom = viewer.getBottomIndexEndOffset();
+        int screen = bottom - top;
+        return new Region(Math.max(0, top - screen), 3 * screen);
+    }
+
+    private List<? extends ICodeMining> createCodeMinings(List<MiningDescriptor> descriptors, IDocument document,
+        IProgressMonitor monitor)
+    {
+        checkCanceled(monitor);
+        List<ICodeMining> minings = new ArrayList<>(descriptors.size());
+        for (MiningDescriptor descriptor : descriptors)
+        {
+            try
+            {
+                minings.add(createCodeMining(descriptor, document));
+            }
+            catch (BadLocationException e)
+            {
+                Fabriclipse.LOGGER.error("Creating code mining for " + descriptor, e);
+            }
+        }
         return minings;
     }
 
-    private void computeMethodMinings(IDocument document, Multimap<MethodMiningKey, IMethod> methodMinings, List<ICodeMining> minings)
+    static List<MiningDescriptor> computeDescriptors(Collection<MixinInfo> mixins, IType openType)
+    {
+        return computeDescriptors(mixins, openType, new NullProgressMonitor());
+    }
+
+    // Throws OperationCanceledException between phases, and between mixins, once the monitor is cancelled
+    static List<MiningDescriptor> computeDescriptors(Collection<MixinInfo> mixins, IType openType,
+        IProgressMonitor monitor)
+    {
+        MiningData data = gatherMiningData(mixins, openType, monitor);
+        checkCanceled(monitor);
+        return computeDescriptors(data, offset -> true);
+    }
+
+    // Only minings at offsets accepted by the predicate are described
+    private static List<MiningDescriptor> computeDescriptors(MiningData data, IntPredicate offsets)
+    {
+        List<MiningDescriptor> descriptors = new ArrayList<>();
+        computeMethodMinings(data.methods(), offsets, descriptors);
+        computeFieldMinings(data.fields(), offsets, descriptors);
+        return List.copyOf(descriptors);
+    }
+
+    private static void checkCanceled(IProgressMonitor monitor)
+    {
+        if (monitor.isCanceled())
+            throw new OperationCanceledException();
+    }
+
+    private static void computeMethodMinings(Multimap<MethodMiningKey, IMethod> methodMinings,
+        IntPredicate offsets, List<MiningDescriptor> descriptors)
     {
         for (Map.Entry<MethodMiningKey, Collection<IMethod>> entry : methodMinings.asMap().entrySet())
         {
@@ -124,18 +308,25 @@ public class MixinCodeMiningProvider extends AbstractCodeMiningProvider
                     type += " into static initialiser";
                 }
                 if (SourceRange.isAvailable(sourceRange))
-                    minings.add(createMethodCodeMining(sourceRange, type, handlers, document, this));
+                {
+                    if (offsets.test(sourceRange.getOffset()))
+                    {
+                        descriptors.add(new MiningDescriptor(sourceRange.getOffset(),
+                            String.format("%d x %s", handlers.size(), type), handlers));
+                    }
+                }
                 else if (!Flags.isSynthetic(entry.getKey().target.getFlags()))
                     Fabriclipse.LOGGER.error("No source range for " + entry.getKey().target);
             }
-            catch (JavaModelException | BadLocationException e)
+            catch (JavaModelException e)
             {
                 Fabriclipse.LOGGER.error("Creating code mining for " + entry.getKey(), e);
             }
         }
     }
 
-    private void computeFieldMinings(IDocument document, Multimap<FieldMiningKey, IMethod> fieldMinings, List<ICodeMining> minings)
+    private static void computeFieldMinings(Multimap<FieldMiningKey, IMethod> fieldMinings,
+        IntPredicate offsets, List<MiningDescriptor> descriptors)
     {
         for (Map.Entry<FieldMiningKey, Collection<IMethod>> entry : fieldMinings.asMap().entrySet())
         {
@@ -145,6 +336,8 @@ public class MixinCodeMiningProvider extends AbstractCodeMiningProvider
                 ISourceRange sourceRange = entry.getKey().target.getSourceRange();
                 if (SourceRange.isAvailable(sourceRange) && entry.getKey().type.equals("@Accessor"))
                 {
+                    if (!offsets.test(sourceRange.getOffset()))
+                        continue;
                     StringBuilder labelBuilder = new StringBuilder("@Accessor: ");
                     int getters = 0, setters = 0;
                     for (IMethod handler : handlers)
@@ -160,115 +353,93 @@ public class MixinCodeMiningProvider extends AbstractCodeMiningProvider
                         if (setters > 0) labelBuilder.append(' ');
                     }
                     if (setters > 0) labelBuilder.append(setters + " set");
-
-                    var mining = ToggleableCodeMining.header(document.getLineOfOffset(sourceRange.getOffset()),
-                        document, this, event -> showHandlerMenu(handlers), FULL_PREF_KEY);
-                    mining.setLabel(labelBuilder.toString());
-                    minings.add(mining);
+                    descriptors.add(new MiningDescriptor(sourceRange.getOffset(), labelBuilder.toString(), handlers));
                 }
                 else if (!Flags.isSynthetic(entry.getKey().target.getFlags()))
                     Fabriclipse.LOGGER.error("No source range for " + entry.getKey().target);
             }
-            catch (JavaModelException | BadLocationException e)
+            catch (JavaModelException e)
             {
                 Fabriclipse.LOGGER.error("Creating code mining for " + entry.getKey(), e);
             }
         }
     }
 
-    private void gatherMiningData(Collection<MixinInfo> mixins, IType openType,
-        Multimap<MethodMiningKey, IMethod> methodMinings, Multimap<FieldMiningKey, IMethod> fieldMinings)
+    private static MiningData gatherMiningData(Collection<MixinInfo> mixins, IType openType,
+        IProgressMonitor monitor)
     {
-        var injections = gatherInjections(mixins, openType, methodMinings, fieldMinings);
+        Multimap<MethodMiningKey, IMethod> methodMinings = HashMultimap.create();
+        Multimap<FieldMiningKey, IMethod> fieldMinings = HashMultimap.create();
+        TypeMembers members;
         try
         {
-            for (IMethod method : openType.getMethods())
-            {
-                String name = method.getElementName().equals(openType.getElementName())
-                    ? "<init>" : method.getElementName();
-                for (Injection injection : injections.get(name))
-                {
-                    if (injection.target.matches(openType, method))
-                        methodMinings.put(new MethodMiningKey(method, injection.type), injection.handler);
-                }
-            }
+            members = TypeMembers.of(openType);
         }
         catch (JavaModelException e)
         {
-            Fabriclipse.LOGGER.error("Matching mixin targets for " + openType.getFullyQualifiedName('.'), e);
+            Fabriclipse.LOGGER.error("Indexing members of " + openType.getFullyQualifiedName('.'), e);
+            return new MiningData(methodMinings, fieldMinings);
         }
-        for (Injection injection : injections.values())
+        var injections = gatherInjections(mixins, openType, members, methodMinings, fieldMinings, monitor);
+        checkCanceled(monitor);
+        for (Injection injection : injections)
         {
-            injection.target.assertSatisfied(
+            List<IndexedMethod> selected = injection.target.select(members.named(injection.target.name));
+            for (IndexedMethod candidate : selected)
+                methodMinings.put(new MethodMiningKey(candidate.method(), injection.type), injection.handler);
+            injection.target.assertSatisfied(selected.size(),
                 injection.target.raw + "." + openType.getFullyQualifiedName('.') + " from " +
                 injection.handler.getDeclaringType().getFullyQualifiedName('.'));
         }
+        return new MiningData(methodMinings, fieldMinings);
     }
 
-    private Multimap<String, Injection> gatherInjections(Collection<MixinInfo> mixins, IType openType,
-        Multimap<MethodMiningKey, IMethod> methodMinings, Multimap<FieldMiningKey, IMethod> fieldMinings)
+    private static List<Injection> gatherInjections(Collection<MixinInfo> mixins, IType openType,
+        TypeMembers members, Multimap<MethodMiningKey, IMethod> methodMinings,
+        Multimap<FieldMiningKey, IMethod> fieldMinings, IProgressMonitor monitor)
     {
-        var injections = HashMultimap.<String, Injection>create();
+        List<Injection> injections = new ArrayList<>();
         for (MixinInfo info : mixins)
         {
-            try
+            checkCanceled(monitor);
+            for (Handler handler : info.handlers().get())
             {
-                for (IMethod method : info.mixin().getMethods())
+                switch (handler.kind())
                 {
-                    if (JdtAnnotations.get(method, "org.spongepowered.asm.mixin.Overwrite").exists())
-                        processOverwrite(openType, method, methodMinings);
-                    var accessor = JdtAnnotations.get(method, "org.spongepowered.asm.mixin.gen.Accessor");
-                    if (accessor.exists())
-                        processAccessor(openType, accessor, method, fieldMinings);
-                    var invoker = JdtAnnotations.get(method, "org.spongepowered.asm.mixin.gen.Invoker");
-                    if (invoker.exists())
-                        processInvoker(openType, invoker, method, methodMinings);
-                    for (String injectorName : INJECTORS)
-                    {
-                        IAnnotation injector = JdtAnnotations.get(method, injectorName);
-                        if (injector.exists())
-                        {
-                            processInjector(openType, method, injector, injection ->
-                                injections.put(injection.target.name, injection));
-                        }
-                    }
+                case OVERWRITE -> processOverwrite(openType, members, handler, methodMinings);
+                case ACCESSOR -> processAccessor(openType, handler, fieldMinings);
+                case INVOKER -> processInvoker(openType, members, handler, methodMinings);
+                case INJECTOR ->
+                {
+                    for (MethodSpec target : handler.targets())
+                        injections.add(new Injection(handler.type(), handler.method(), target));
+                }
                 }
-            }
-            catch (JavaModelException e)
-            {
-                Fabriclipse.LOGGER.error("Gathering mixin handlers for " + openType.getFullyQualifiedName('.') +
-                    " from " + info.mixin().getFullyQualifiedName('.'), e);
             }
         }
         return injections;
     }
 
-    private void processOverwrite(IType openType, IMethod method,
+    private static void processOverwrite(IType openType, TypeMembers members, Handler handler,
         Multimap<MethodMiningKey, IMethod> injectors)
-        throws JavaModelException
     {
-        IMethod target = openType.getMethod(method.getElementName(),
-            Signature.getParameterTypes(method.getSignature()));
-        if (target.exists())
-            injectors.put(new MethodMiningKey(target, "@Overwrite"), method);
+        IndexedMethod target = members.find(handler.targetName(), handler.parameterTypes());
+        if (target != null)
+            injectors.put(new MethodMiningKey(target.method(), "@Overwrite"), handler.method());
         else
         {
-            Fabriclipse.LOGGER.error("Overwrite target " + target.getElementName() +
-                '(' + String.join("", target.getParameterTypes()) + ')' +
+            Fabriclipse.LOGGER.error("Overwrite target " + handler.targetName() +
+                '(' + String.join("", handler.parameterTypes()) + ')' +
                 " not found in " + openType.getFullyQualifiedName('.'));
         }
     }
 
-    private void processAccessor(IType openType, IAnnotation accessor, IMethod method,
+    private static void processAccessor(IType openType, Handler handler,
         Multimap<FieldMiningKey, IMethod> accessors)
-        throws JavaModelException
     {
-        String targetName = getAccessorTarget(accessor, method);
-        if (targetName.isEmpty())
-            return;
-        IField target = openType.getField(targetName);
+        IField target = openType.getField(handler.targetName());
         if (target.exists())
-            accessors.put(new FieldMiningKey(target, "@Accessor"), method);
+            accessors.put(new FieldMiningKey(target, "@Accessor"), handler.method());
         else
         {
             Fabriclipse.LOGGER.error("Accessor target " + target.getElementName() +
@@ -276,89 +447,27 @@ public class MixinCodeMiningProvider extends AbstractCodeMiningProvider
         }
     }
 
-    private String getAccessorTarget(IAnnotation invoker, IMethod method)
-        throws JavaModelException
-    {
-        IMemberValuePair value = JdtAnnotations.member(invoker, "value");
-        if (value != null)
-            return (String) value.getValue();
-        else
-        {
-            Matcher matcher = ACCESSOR_TARGET.matcher(method.getElementName());
-            if (!matcher.matches())
-                return "";
-            String inferred = matcher.group(1);
-            // Don't lowercase accessors targeting constants
-            if (inferred.toUpperCase(Locale.ROOT).equals(inferred))
-                return inferred;
-            else
-                return inferred.substring(0, 1).toLowerCase(Locale.ROOT) + inferred.substring(1);
-        }
-    }
-
-    private void processInvoker(IType openType, IAnnotation invoker, IMethod method,
+    private static void processInvoker(IType openType, TypeMembers members, Handler handler,
         Multimap<MethodMiningKey, IMethod> injectors)
-        throws JavaModelException
     {
-        String targetDesc = getInvokerTarget(invoker, method);
-        if (targetDesc.isEmpty())
-            return;
-        if (!visitInvokerTarget(openType, targetDesc,
-            target -> injectors.put(new MethodMiningKey(target, "Invoker"), method)))
+        MethodSpec spec = handler.targets().get(0);
+        List<IndexedMethod> selected = spec.select(members.named(spec.name));
+        if (!selected.isEmpty())
         {
-            Fabriclipse.LOGGER.error("Invoker target " + targetDesc +
-                " not found in " + openType.getFullyQualifiedName('.'));
-        }
-    }
-
-    private String getInvokerTarget(IAnnotation invoker, IMethod method)
-        throws JavaModelException
-    {
-        IMemberValuePair value = JdtAnnotations.member(invoker, "value");
-        if (value != null)
-            return (String) value.getValue();
-        else
-        {
-            Matcher matcher = INVOKER_TARGET.matcher(method.getElementName());
-            if (!matcher.matches())
-                return "";
-            return matcher.group(1).toLowerCase() + matcher.group(2) + method.getSignature();
-        }
-    }
-
-    private boolean visitInvokerTarget(IType type, String descriptor, Consumer<IMethod> visitor)
-        throws JavaModelException
-    {
-        var spec = MethodSpec.parse(descriptor);
-        for (IMethod method : type.getMethods())
-        {
-            if (spec.matches(type, method))
-            {
-                visitor.accept(method);
-                return true;
-            }
+            injectors.put(new MethodMiningKey(selected.get(0).method(), handler.type()), handler.method());
+            return;
         }
-        return false;
-    }
-
-    private void processInjector(IType openType, IMethod handler, IAnnotation injector,
-        Consumer<Injection> injections)
-        throws JavaModelException
-    {
-        String injectorType = "@" + injector.getElementName().substring(
-            injector.getElementName().lastIndexOf('.') + 1);
-        for (String method : JdtAnnotations.MemberType.STRING.getArray(injector, "method"))
-            injections.accept(new Injection(injectorType, handler, MethodSpec.parse(method)));
+        Fabriclipse.LOGGER.error("Invoker target " + spec.raw +
+            " not found in " + openType.getFullyQualifiedName('.'));
     }
 
-    static ICodeMining createMethodCodeMining(ISourceRange location, String type, Collection<IMethod> handlers,
-        IDocument document, ICodeMiningProvider provider)
-        throws BadLocationException, JavaModelException
+    private ICodeMining createCodeMining(MiningDescriptor descriptor, IDocument document)
+        throws BadLocationException
     {
-        int line = document.getLineOfOffset(location.getOffset());
-        var mining = ToggleableCodeMining.header(line, document, provider,
-            event -> showHandlerMenu(handlers), FULL_PREF_KEY);
-        mining.setLabel(String.format("%d x %s", handlers.size(), type));
+        int line = document.getLineOfOffset(descriptor.offset());
+        var mining = ToggleableCodeMining.header(line, document, this,
+            event -> showHandlerMenu(descriptor.handlers()), FULL_PREF_KEY);
+        mining.setLabel(descriptor.label());
         return mining;
     }
 
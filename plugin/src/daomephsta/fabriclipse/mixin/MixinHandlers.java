@@ -0,0 +1,270 @@
+package daomephsta.fabriclipse.mixin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jdt.core.IAnnotation;
+import org.eclipse.jdt.core.IMemberValuePair;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.Signature;
+
+import daomephsta.fabriclipse.Fabriclipse;
+import daomephsta.fabriclipse.mixin.InjectorRegistry.Injector;
+import daomephsta.fabriclipse.util.ClassFileReader;
+import daomephsta.fabriclipse.util.ClassFileReader.Annotation;
+import daomephsta.fabriclipse.util.JdtAnnotations;
+
+// Handler methods of a mixin, found on first use and shared by all MixinInfos of that mixin.
+// Reindexing a mixin creates a new instance, so these are never stale.
+class MixinHandlers
+{
+    private static final String
+        OVERWRITE = "org.spongepowered.asm.mixin.Overwrite",
+        ACCESSOR = "org.spongepowered.asm.mixin.gen.Accessor",
+        INVOKER = "org.spongepowered.asm.mixin.gen.Invoker";
+    private static final Pattern INVOKER_TARGET = Pattern.compile("(?:call|invoke)([\\w$\\-])([\\w$\\-]+)"),
+                                 ACCESSOR_TARGET = Pattern.compile("(?:get|set|is)([\\w$\\-]+)");
+    private static final int ACC_SYNTHETIC = 0x1000;
+    private final IType mixin;
+    private final boolean fromBytecode;
+    private volatile List<Handler> handlers;
+
+    enum Kind { OVERWRITE, ACCESSOR, INVOKER, INJECTOR }
+
+    // targets are used by injectors and invokers, targetName by accessors and overwrites,
+    // parameterTypes by overwrites. type is the label, e.g. @Inject.
+    record Handler(Kind kind, IMethod method, String type, List<MethodSpec> targets,
+        String targetName, String[] parameterTypes) {}
+
+    MixinHandlers(IType mixin)
+    {
+        this(mixin, false);
+    }
+
+    // Handlers of jar mixins can be read from bytecode, so the class file is never opened by JDT
+    MixinHandlers(IType mixin, boolean fromBytecode)
+    {
+        this.mixin = mixin;
+        this.fromBytecode = fromBytecode;
+    }
+
+    List<Handler> get()
+    {
+        List<Handler> result = handlers;
+        if (result == null)
+        {
+            synchronized (this)
+            {
+                if (handlers == null)
+                    handlers = find();
+                result = handlers;
+            }
+        }
+        return result;
+    }
+
+    private List<Handler> find()
+    {
+        if (fromBytecode)
+        {
+            List<Handler> found = findInBytecode();
+            if (found != null)
+                return found;
+        }
+        List<Handler> found = new ArrayList<>();
+        try
+        {
+            for (IMethod method : mixin.getMethods())
+            {
+                try
+                {
+                    findHandlers(method, found);
+                }
+                catch (IllegalArgumentException e)
+                {
+                    Fabriclipse.LOGGER.error("Reading handler " + method.getElementName() +
+                        " of " + mixin.getFullyQualifiedName('.'), e);
+                }
+            }
+        }
+        catch (JavaModelException e)
+        {
+            Fabriclipse.LOGGER.error("Gathering mixin handlers of " + mixin.getFullyQualifiedName('.'), e);
+        }
+        return List.copyOf(found);
+    }
+
+    // Method handles are created from the descriptors. Null if the class file can't be read.
+    private List<Handler> findInBytecode()
+    {
+        List<ClassFileReader.Method> methods;
+        try
+        {
+            methods = new ClassFileReader(mixin.getClassFile().getBytes()).methods();
+        }
+        catch (JavaModelException | IllegalArgumentException e)
+        {
+            Fabriclipse.LOGGER.warn("Reading " + mixin.getFullyQualifiedName('.') + " as bytecode", e);
+            return null;
+        }
+        List<Handler> found = new ArrayList<>();
+        for (ClassFileReader.Method method : methods)
+        {
+            // JDT doesn't list these either
+            if ((method.access() & ACC_SYNTHETIC) != 0 || method.name().startsWith("<"))
+                continue;
+            try
+            {
+                findHandlers(method, found);
+            }
+            catch (IllegalArgumentException | ClassCastException e)
+            {
+                Fabriclipse.LOGGER.error("Reading handler " + method.name() +
+                    " of " + mixin.getFullyQualifiedName('.'), e);
+            }
+        }
+        return List.copyOf(found);
+    }
+
+    // Each annotation is looked up once, so the number of known injectors doesn't matter
+    private void findHandlers(ClassFileReader.Method method, List<Handler> found)
+    {
+        IMethod handle = null;
+        for (Annotation annotation : method.annotations())
+        {
+            String annotationName = annotation.descriptor()
+                .substring(1, annotation.descriptor().length() - 1).replace('/', '.');
+            Injector injector = InjectorRegistry.INSTANCE.get(annotationName);
+            if (injector == null && !annotationName.equals(OVERWRITE) &&
+                !annotationName.equals(ACCESSOR) && !annotationName.equals(INVOKER))
+            {
+                continue;
+            }
+            if (handle == null)
+            {
+                // Binary method handles use the dotted parameter types of the generic signature, if there is one
+                String signature = method.signature() != null ? method.signature() : method.descriptor();
+                handle = mixin.getMethod(method.name(), Signature.getParameterTypes(signature.replace('/', '.')));
+            }
+            if (injector != null)
+            {
+                List<MethodSpec> targets = new ArrayList<>();
+                if (annotation.values().get(injector.targetMember()) instanceof List<?> specs)
+                {
+                    for (Object target : specs)
+                        targets.add(MethodSpec.parse((String) target));
+                }
+                found.add(new Handler(Kind.INJECTOR, handle, injector.label(), List.copyOf(targets), null, null));
+                continue;
+            }
+            String value = annotation.values().get("value") instanceof String string ? string : null;
+            switch (annotationName)
+            {
+            case OVERWRITE -> found.add(new Handler(Kind.OVERWRITE, handle, "@Overwrite",
+                List.of(), method.name(), Signature.getParameterTypes(method.descriptor())));
+            case ACCESSOR ->
+            {
+                String targetName = getAccessorTarget(value, method.name());
+                if (!targetName.isEmpty())
+                    found.add(new Handler(Kind.ACCESSOR, handle, "@Accessor", List.of(), targetName, null));
+            }
+            case INVOKER ->
+            {
+                String targetDesc = getInvokerTarget(value, method.name(), method.descriptor());
+                if (!targetDesc.isEmpty())
+                {
+                    found.add(new Handler(Kind.INVOKER, handle, "Invoker",
+                        List.of(MethodSpec.parse(targetDesc)), null, null));
+                }
+            }
+            }
+        }
+    }
+
+    private void findHandlers(IMethod method, List<Handler> found) throws JavaModelException
+    {
+        for (IAnnotation annotation : method.getAnnotations())
+        {
+            String annotationName = annotation.getElementName();
+            Injector injector = InjectorRegistry.INSTANCE.get(annotationName);
+            if (injector != null)
+            {
+                List<MethodSpec> targets = new ArrayList<>();
+                for (String target : JdtAnnotations.MemberType.STRING.getArray(annotation, injector.targetMember()))
+                    targets.add(MethodSpec.parse(target));
+                found.add(new Handler(Kind.INJECTOR, method, injector.label(), List.copyOf(targets), null, null));
+            }
+            else if (JdtAnnotations.isNamed(annotation, OVERWRITE))
+            {
+                found.add(new Handler(Kind.OVERWRITE, method, "@Overwrite", List.of(),
+                    method.getElementName(), Signature.getParameterTypes(method.getSignature())));
+            }
+            else if (JdtAnnotations.isNamed(annotation, ACCESSOR))
+            {
+                String targetName = getAccessorTarget(annotation, method);
+                if (!targetName.isEmpty())
+                    found.add(new Handler(Kind.ACCESSOR, method, "@Accessor", List.of(), targetName, null));
+            }
+            else if (JdtAnnotations.isNamed(annotation, INVOKER))
+            {
+                String targetDesc = getInvokerTarget(annotation, method);
+                if (!targetDesc.isEmpty())
+                {
+                    found.add(new Handler(Kind.INVOKER, method, "Invoker",
+                        List.of(MethodSpec.parse(targetDesc)), null, null));
+                }
+            }
+        }
+    }
+
+    private static String getAccessorTarget(IAnnotation accessor, IMethod method)
+        throws JavaModelException
+    {
+        IMemberValuePair value = JdtAnnotations.member(accessor, "value");
+        return getAccessorTarget(value != null ? (String) value.getValue() : null, method.getElementName());
+    }
+
+    private static String getAccessorTarget(String value, String methodName)
+    {
+        if (value != null)
+            return value;
+        else
+        {
+            Matcher matcher = ACCESSOR_TARGET.matcher(methodName);
+            if (!matcher.matches())
+                return "";
+            String inferred = matcher.group(1);
+            // Don't lowercase accessors targeting constants
+            if (inferred.toUpperCase(Locale.ROOT).equals(inferred))
+                return inferred;
+            else
+                return inferred.substring(0, 1).toLowerCase(Locale.ROOT) + inferred.substring(1);
+        }
+    }
+
+    private static String getInvokerTarget(IAnnotation invoker, IMethod method)
+        throws JavaModelException
+    {
+        IMemberValuePair value = JdtAnnotations.member(invoker, "value");
+        return getInvokerTarget(value != null ? (String) value.getValue() : null,
+            method.getElementName(), method.getSignature());
+    }
+
+    private static String getInvokerTarget(String value, String methodName, String signature)
+    {
+        if (value != null)
+            return value;
+        else
+        {
+            Matcher matcher = INVOKER_TARGET.matcher(methodName);
+            if (!matcher.matches())
+                return "";
+            return matcher.group(1).toLowerCase() + matcher.group(2) + signature;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package daomephsta.fabriclipse.mixin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IType;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import daomephsta.fabriclipse.mixin.MixinStore.MixinInfo;
+
+// Mixins of a project, each stored once under an int id and indexed by target, config and type.
+// Indexes are arrays of ids that are replaced rather than modified, so lookups never lock.
+// Writes are synchronized.
+class MixinIndex
+{
+    private static final int[] NO_IDS = new int[0];
+    // Class and config names are shared by all projects, and by all mixins of a project
+    private static final Interner<String> NAMES = Interners.newWeakInterner();
+    private volatile Entry[] entries = new Entry[64];
+    private int[] freeIds = NO_IDS;
+    private int freeCount = 0, nextId = 0, pendingCount = 0;
+    private final Map<String, int[]> byTarget = new ConcurrentHashMap<>();
+    private final Map<String, int[]> byConfig = new ConcurrentHashMap<>();
+    // Only resolved mixins are indexed by type
+    private final Map<IType, Integer> byMixin = new ConcurrentHashMap<>();
+
+    // A pending entry has a name and jar, but no type or handlers until it is resolved
+    record Entry(String config, String[] targets, String name, IPath jar, IType mixin, MixinHandlers handlers)
+    {
+        static Entry pending(String config, String name, IPath jar, Iterable<String> targets)
+        {
+            return new Entry(intern(config), internAll(targets), name, jar, null, null);
+        }
+
+        static Entry resolved(String config, IType mixin, MixinHandlers handlers, Iterable<String> targets)
+        {
+            return new Entry(intern(config), internAll(targets), null, null, mixin, handlers);
+        }
+
+        boolean isPending()
+        {
+            return mixin == null;
+        }
+
+        Entry resolve(IType mixin, MixinHandlers handlers)
+        {
+            return new Entry(config, targets, null, null, mixin, handlers);
+        }
+
+        boolean hasTarget(String target)
+        {
+            for (String candidate : targets)
+            {
+                if (candidate.equals(target))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    // Counts, and a rough estimate of the index's own heap usage. Types and handlers aren't included.
+    record Footprint(int mixins, int pending, int targets, int configs, long postings, long estimatedBytes)
+    {
+        @Override
+        public String toString()
+        {
+            return String.format("%d mixins (%d pending), %d targets, %d configs, %d postings, ~%.1f KB",
+                mixins, pending, targets, configs, postings, estimatedBytes / 1024.0);
+        }
+    }
+
+    synchronized int add(Entry entry)
+    {
+        int id = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+        if (id >= entries.length)
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        // Stored before it's reachable from the indexes, so readers never find an empty slot
+        entries[id] = entry;
+        for (String target : entry.targets())
+            byTarget.merge(target, new int[] {id}, MixinIndex::append);
+        byConfig.merge(entry.config(), new int[] {id}, MixinIndex::append);
+        if (entry.isPending())
+            pendingCount++;
+        else
+            byMixin.put(entry.mixin(), id);
+        return id;
+    }
+
+    synchronized Entry remove(int id)
+    {
+        Entry entry = entries[id];
+        if (entry == null)
+            return null;
+        for (String target : entry.targets())
+            byTarget.computeIfPresent(target, (k, ids) -> without(ids, id));
+        byConfig.computeIfPresent(entry.config(), (k, ids) -> without(ids, id));
+        if (entry.isPending())
+            pendingCount--;
+        else
+            byMixin.remove(entry.mixin(), id);
+        entries[id] = null;
+        if (freeCount == freeIds.length)
+            freeIds = Arrays.copyOf(freeIds, Math.max(16, freeIds.length * 2));
+        freeIds[freeCount++] = id;
+        return entry;
+    }
+
+    // Replaces a pending entry with its resolved form, keeping its id
+    synchronized void resolve(int id, IType mixin, MixinHandlers handlers)
+    {
+        Entry entry = entries[id];
+        if (entry == null || !entry.isPending())
+            return;
+        entries[id] = entry.resolve(mixin, handlers);
+        pendingCount--;
+        byMixin.put(mixin, id);
+    }
+
+    Entry get(int id)
+    {
+        Entry[] current = entries;
+        return id < current.length ? current[id] : null;
+    }
+
+    int[] idsByTarget(String target)
+    {
+        return byTarget.getOrDefault(target, NO_IDS);
+    }
+
+    int[] idsByConfig(String config)
+    {
+        return byConfig.getOrDefault(config, NO_IDS);
+    }
+
+    int idOf(IType mixin)
+    {
+        return byMixin.getOrDefault(mixin, -1);
+    }
+
+    List<MixinInfo> mixinsFor(String target)
+    {
+        int[] ids = idsByTarget(target);
+        List<MixinInfo> mixins = new ArrayList<>(ids.length);
+        for (int id : ids)
+        {
+            Entry entry = get(id);
+            // An id read just before it was removed may already belong to another mixin
+            if (entry != null && !entry.isPending() && entry.hasTarget(target))
+                mixins.add(new MixinInfo(target, entry.mixin(), entry.handlers()));
+        }
+        return mixins;
+    }
+
+    boolean hasPending(String target)
+    {
+        for (int id : idsByTarget(target))
+        {
+            Entry entry = get(id);
+            if (entry != null && entry.isPending())
+                return true;
+        }
+        return false;
+    }
+
+    synchronized Footprint footprint()
+    {
+        long postings = 0, bytes = 16L + 16 + 4L * entries.length + 16 + 4L * freeIds.length;
+        for (int[] ids : byTarget.values())
+            postings += ids.length;
+        for (int[] ids : byConfig.values())
+            postings += ids.length;
+        // Map entries and arrays. Interned names are counted once per project.
+        bytes += 48L * (byTarget.size() + byConfig.size() + byMixin.size()) + 32L * (byTarget.size() + byConfig.size());
+        bytes += 4 * postings + 16L * byMixin.size();
+        int mixins = 0;
+        for (Entry entry : entries)
+        {
+            if (entry == null)
+                continue;
+            mixins++;
+            bytes += 40 + 16 + 4L * entry.targets().length;
+            if (entry.name() != null)
+                bytes += 40 + entry.name().length();
+        }
+        for (String name : byTarget.keySet())
+            bytes += 40 + name.length();
+        for (String name : byConfig.keySet())
+            bytes += 40 + name.length();
+        return new Footprint(mixins, pendingCount, byTarget.size(), byConfig.size(), postings, bytes);
+    }
+
+    private static String intern(String name)
+    {
+        return NAMES.intern(name);
+    }
+
+    private static String[] internAll(Iterable<String> names)
+    {
+        List<String> interned = new ArrayList<>();
+        for (String name : names)
+            interned.add(intern(name));
+        return interned.toArray(String[]::new);
+    }
+
+    private static int[] append(int[] ids, int[] added)
+    {
+        int[] result = Arrays.copyOf(ids, ids.length + added.length);
+        System.arraycopy(added, 0, result, ids.length, added.length);
+        return result;
+    }
+
+    // Null removes the key, so targets without mixins don't linger
+    private static int[] without(int[] ids, int removed)
+    {
+        for (int i = 0; i < ids.length; i++)
+        {
+            if (ids[i] == removed)
+            {
+                if (ids.length == 1)
+                    return null;
+                int[] result = new int[ids.length - 1];
+                System.arraycopy(ids, 0, result, 0, i);
+                System.arraycopy(ids, i + 1, result, i, ids.length - i - 1);
+                return result;
+            }
+        }
+        return ids;
+    }
+}
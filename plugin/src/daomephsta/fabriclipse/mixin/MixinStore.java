@@ -1,10 +1,16 @@
 package daomephsta.fabriclipse.mixin;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
@@ -12,46 +18,62 @@ import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.jdt.core.IClassFile;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
-import org.eclipse.jface.text.ITextViewer;
-import org.eclipse.jface.text.source.ISourceViewerExtension5;
-import org.eclipse.ui.IEditorReference;
-import org.eclipse.ui.IWorkbenchPage;
-import org.eclipse.ui.PartInitException;
-import org.eclipse.ui.PlatformUI;
 
 import daomephsta.fabriclipse.Fabriclipse;
 import daomephsta.fabriclipse.metadata.Mod;
-import daomephsta.fabriclipse.util.Mixins;
+import daomephsta.fabriclipse.metadata.OpenJarCache;
+import daomephsta.fabriclipse.metadata.ProjectEnvironmentManager;
+import daomephsta.fabriclipse.util.Jobs;
 
 public class MixinStore implements IResourceChangeListener
 {
     public static final MixinStore INSTANCE = new MixinStore();
+    private static final IPath RESOURCES = Path.fromPortableString("src/main/resources");
+    // Indexes of projects beyond this are dropped, least recently used first
+    private static final int MAX_INDEXED_PROJECTS = 8;
+    private static final AtomicLong USES = new AtomicLong();
     private final Map<IProject, CompletableFuture<ProjectMixins>> mixinsByProject = new ConcurrentHashMap<>();
+    private final Map<IProject, Long> lastUsed = new ConcurrentHashMap<>();
+    private final MiningRefresh miningRefresh = new MiningRefresh();
 
-    public CompletableFuture<Collection<MixinInfo>> mixinsFor(IProject project, String targetClass)
+    public CompletableFuture<TargetMixins> mixinsFor(IProject project, String targetClass)
     {
-        return byProject(project)
-            .thenApply(m -> m.byTarget.get(targetClass));
+        return byProject(project).thenCompose(m -> m.hasPending(targetClass)
+            ? Jobs.schedule("Resolving mixins of " + targetClass, project, monitor ->
+            {
+                m.resolvePending(targetClass);
+                return m;
+            })
+            : CompletableFuture.completedFuture(m)).thenApply(m ->
+        {
+            // Read the version first, so concurrent changes can only make it older than the mixins
+            long version = m.versionOf(targetClass);
+            return new TargetMixins(m.mixinsFor(targetClass), version);
+        });
     }
 
     public CompletableFuture<Void> loadConfig(IProject project, Mod mod, String config)
     {
-        return byProject(project).thenAcceptAsync(mixins ->
-        {
-            try
-            {
-                mixins.loadConfig(mod, config);
-            }
-            catch (CoreException | IOException e)
+        return byProject(project).thenCompose(mixins ->
+            Jobs.schedule("Loading " + config, project, monitor ->
             {
-                Fabriclipse.LOGGER.error("Loading " + config, e);
-            }
-        });
+                try
+                {
+                    mixins.loadConfig(mod, config);
+                }
+                catch (IOException e)
+                {
+                    Fabriclipse.LOGGER.error("Loading " + config, e);
+                }
+                return null;
+            }));
     }
 
     public CompletableFuture<Void> removeByConfig(IProject project, String config)
@@ -60,72 +82,203 @@ public class MixinStore implements IResourceChangeListener
             .thenAccept(mixins -> mixins.removeByConfig(config));
     }
 
+    // Unloads the configs of removed mods and loads those of added mods. Changed mods are both.
+    public void classpathChanged(IProject project, Collection<Mod> removed, Collection<Mod> added)
+    {
+        CompletableFuture<ProjectMixins> indexed = mixinsByProject.get(project);
+        // Indexing that hasn't finished yet will see the new classpath
+        if (indexed == null || !indexed.isDone() || indexed.isCompletedExceptionally())
+            return;
+        for (Mod mod : removed)
+        {
+            for (String config : mod.getMetadata().getMixinConfigs())
+                removeByConfig(project, config);
+        }
+        List<CompletableFuture<Void>> loads = new ArrayList<>();
+        for (Mod mod : added)
+        {
+            for (String config : mod.getMetadata().getMixinConfigs())
+                loads.add(loadConfig(project, mod, config));
+        }
+        CompletableFuture.allOf(loads.toArray(CompletableFuture[]::new))
+            .whenComplete((loaded, e) -> OpenJarCache.INSTANCE.closeIdle());
+    }
+
+    // Summary of the size of a project's index, for diagnostics
+    public String footprint(IProject project)
+    {
+        CompletableFuture<ProjectMixins> indexed = mixinsByProject.get(project);
+        if (indexed == null || !indexed.isDone() || indexed.isCompletedExceptionally())
+            return "not indexed";
+        return indexed.join().footprint().toString();
+    }
+
+    // Drops everything cached for a project. It's reindexed on next use, unless it was deleted.
+    public void forget(IProject project, boolean deleted)
+    {
+        lastUsed.remove(project);
+        CompletableFuture<ProjectMixins> mixins = mixinsByProject.remove(project);
+        if (mixins != null)
+            mixins.cancel(false);
+        MixinCodeMiningProvider.forget(project);
+        TypeMembers.forget(project);
+        PersistentMixinIndex.INSTANCE.forget(project, deleted);
+    }
+
+    // Whether a Java element handle identifier belongs to a project
+    static boolean belongsTo(String handleIdentifier, IProject project)
+    {
+        IJavaElement element = JavaCore.create(handleIdentifier);
+        return element != null && element.getJavaProject() != null &&
+            project.equals(element.getJavaProject().getProject());
+    }
+
     private CompletableFuture<ProjectMixins> byProject(IProject project)
     {
-        return mixinsByProject.computeIfAbsent(project,
-            k -> CompletableFuture.supplyAsync(() -> ProjectMixins.forProject(k)));
+        lastUsed.put(project, USES.incrementAndGet());
+        CompletableFuture<ProjectMixins> existing = mixinsByProject.get(project);
+        if (existing != null)
+            return existing;
+        CompletableFuture<ProjectMixins> mixins = new CompletableFuture<>();
+        existing = mixinsByProject.putIfAbsent(project, mixins);
+        if (existing != null)
+            return existing;
+        forgetInactive();
+        // Forget failed or cancelled indexing, so it's retried next time
+        mixins.whenComplete((indexed, e) ->
+        {
+            if (e != null)
+                mixinsByProject.remove(project, mixins);
+        });
+        ProjectEnvironmentManager.INSTANCE.getProjectEnvironment(project)
+            .thenCompose(environment -> Jobs.schedule("Indexing mixins of " + project.getName(), project,
+                monitor -> ProjectMixins.forProject(project, environment, monitor)))
+            .whenComplete((indexed, e) ->
+            {
+                if (e != null)
+                    mixins.completeExceptionally(e);
+                else
+                    mixins.complete(indexed);
+            });
+        return mixins;
+    }
+
+    // Indexing is still running for projects that are too recently used to be dropped, so this only
+    // drops projects that are done, and may leave more than the limit
+    private void forgetInactive()
+    {
+        while (mixinsByProject.size() > MAX_INDEXED_PROJECTS)
+        {
+            IProject leastRecent = null;
+            long leastRecentUse = Long.MAX_VALUE;
+            for (Map.Entry<IProject, CompletableFuture<ProjectMixins>> indexed : mixinsByProject.entrySet())
+            {
+                long use = lastUsed.getOrDefault(indexed.getKey(), 0L);
+                if (indexed.getValue().isDone() && use < leastRecentUse)
+                {
+                    leastRecent = indexed.getKey();
+                    leastRecentUse = use;
+                }
+            }
+            if (leastRecent == null)
+                return;
+            forget(leastRecent, false);
+            ProjectEnvironmentManager.INSTANCE.forget(leastRecent);
+        }
     }
 
-    public record MixinInfo(String target, IType mixin) {}
+    public record MixinInfo(String target, IType mixin, MixinHandlers handlers) {}
+
+    // The version changes whenever the mixins targeting a class change
+    public record TargetMixins(Collection<MixinInfo> mixins, long version) {}
 
+    // All changes of an event are reindexed before editors showing affected targets are updated, once
     @Override
     public void resourceChanged(IResourceChangeEvent event)
     {
+        List<CompletableFuture<Set<String>>> affected = new ArrayList<>();
         for (IResourceDelta projectDelta : event.getDelta().getAffectedChildren())
         {
             IProject project = (IProject) projectDelta.getResource();
             if (!project.isOpen()) continue;
             try
             {
-                event.getDelta().accept(delta ->
-                    visitProjectDelta(project, delta));
+                projectDelta.accept(delta -> visitProjectDelta(project, delta, affected));
             }
             catch (CoreException e)
             {
                 Fabriclipse.LOGGER.error("Visiting " + project.getName(), e);
             }
         }
-    }
-
-    private boolean visitProjectDelta(IProject project, IResourceDelta delta) throws JavaModelException
-    {
-        if (delta.getResource() instanceof IFile file &&
-            "java".equals(delta.getFullPath().getFileExtension()))
+        if (affected.isEmpty())
+            return;
+        // A change that fails to reindex, e.g. because a target doesn't resolve mid-edit, affects no targets
+        List<CompletableFuture<Set<String>>> recovered = new ArrayList<>(affected.size());
+        for (CompletableFuture<Set<String>> targetsOfChange : affected)
         {
-            var javaFile = (ICompilationUnit) JavaCore.create(file);
-            for (IType type : javaFile.getAllTypes())
+            recovered.add(targetsOfChange.exceptionally(e ->
             {
-                byProject(project).thenAccept(mixins ->
-                {
-                    if (mixins.all.contains(type))
-                        processMixin(type);
-                });
-            }
+                if (!(e instanceof CancellationException || e.getCause() instanceof CancellationException))
+                    Fabriclipse.LOGGER.error("Reindexing mixins after a resource change", e);
+                return Set.of();
+            }));
         }
-        return true;
+        CompletableFuture.allOf(recovered.toArray(CompletableFuture[]::new)).thenRun(() ->
+        {
+            Set<String> targets = new HashSet<>();
+            for (CompletableFuture<Set<String>> targetsOfChange : recovered)
+                targets.addAll(targetsOfChange.join());
+            miningRefresh.request(targets);
+        });
     }
 
-    private void processMixin(IType mixin)
+    private boolean visitProjectDelta(IProject project, IResourceDelta delta,
+        List<CompletableFuture<Set<String>>> affected) throws JavaModelException
     {
-        IWorkbenchPage activePage = PlatformUI.getWorkbench().getActiveWorkbenchWindow().getActivePage();
-        for (IEditorReference editor : activePage.getEditorReferences())
+        if (!(delta.getResource() instanceof IFile file))
+            return true;
+        if ("java".equals(file.getFileExtension()) && JavaCore.create(file) instanceof ICompilationUnit javaFile)
         {
-            try
+            List<IType> types = javaFile.exists()
+                ? List.of(javaFile.getAllTypes())
+                // Types of removed files can't be listed, but the primary type handle can still be created
+                : List.of(javaFile.getType(file.getFullPath().removeFileExtension().lastSegment()));
+            // Projects that aren't indexed will see the change when they are
+            CompletableFuture<ProjectMixins> indexed = mixinsByProject.get(project);
+            if (indexed == null)
+                return true;
+            affected.add(indexed.thenApply(mixins ->
             {
-                ITextViewer textViewer = editor.getEditor(false).getAdapter(ITextViewer.class);
-                String openClassName = editor.getEditorInput().getAdapter(IClassFile.class)
-                    .findPrimaryType().getFullyQualifiedName();
-                if (Mixins.getTargetClasses(mixin).contains(openClassName) &&
-                    textViewer instanceof ISourceViewerExtension5 sve5)
+                Set<String> targets = new HashSet<>();
+                for (IType type : types)
                 {
-                    sve5.updateCodeMinings();
+                    if (mixins.isListed(type))
+                        targets.addAll(mixins.reindexMixin(type));
                 }
-            }
-            catch (PartInitException e)
+                return targets;
+            }));
+        }
+        else if ("json".equals(file.getFileExtension()) && RESOURCES.isPrefixOf(file.getProjectRelativePath()))
+        {
+            String config = file.getProjectRelativePath().makeRelativeTo(RESOURCES).toPortableString();
+            CompletableFuture<ProjectMixins> indexed = mixinsByProject.get(project);
+            if (indexed == null)
+                return true;
+            affected.add(indexed.thenApply(mixins ->
             {
-                Fabriclipse.LOGGER.error("Updating editor for " + editor.getTitle(), e);
-                e.printStackTrace();
-            }
+                if (!mixins.isSourceConfig(config))
+                    return Set.of();
+                try
+                {
+                    return mixins.reloadConfigNames(config);
+                }
+                catch (CoreException | IOException e)
+                {
+                    Fabriclipse.LOGGER.error("Reloading " + config, e);
+                    return Set.of();
+                }
+            }));
         }
+        return true;
     }
 }
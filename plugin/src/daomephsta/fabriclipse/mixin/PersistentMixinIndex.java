@@ -0,0 +1,272 @@
+package daomephsta.fabriclipse.mixin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IPath;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import daomephsta.fabriclipse.Fabriclipse;
+import daomephsta.fabriclipse.metadata.JarFingerprint;
+
+// Names and targets of jar mixins, keyed by config and jar fingerprint so a changed jar only invalidates its own entries
+public class PersistentMixinIndex
+{
+    public static final PersistentMixinIndex INSTANCE = new PersistentMixinIndex();
+    private static final String DIRECTORY = "mixin-index";
+    // Entries of older formats are rescanned. 2: nested targets are named with '.', not '$'.
+    private static final int FORMAT = 2;
+    // Only projects that have been used since startup are loaded
+    private final Map<String, ProjectIndex> byProject = new ConcurrentHashMap<>();
+    private volatile IPath stateLocation;
+
+    record ConfigKey(JarFingerprint jar, String config) {}
+
+    record CachedMixin(String name, Set<String> targets) {}
+
+    private static class ProjectIndex
+    {
+        private final Map<ConfigKey, List<CachedMixin>> entries = new ConcurrentHashMap<>();
+        private final Set<ConfigKey> used = ConcurrentHashMap.newKeySet();
+        private volatile boolean dirty = false;
+    }
+
+    List<CachedMixin> get(IProject project, JarFingerprint jar, String config)
+    {
+        ProjectIndex index = indexOf(project);
+        ConfigKey key = new ConfigKey(jar, config);
+        List<CachedMixin> cached = index.entries.get(key);
+        if (cached != null)
+            index.used.add(key);
+        return cached;
+    }
+
+    void put(IProject project, JarFingerprint jar, String config, List<CachedMixin> mixins)
+    {
+        ProjectIndex index = indexOf(project);
+        ConfigKey key = new ConfigKey(jar, config);
+        index.entries.put(key, mixins);
+        index.used.add(key);
+        index.dirty = true;
+    }
+
+    // Entries not accessed between beginPass() and endPass() are stale and discarded
+    void beginPass(IProject project)
+    {
+        indexOf(project).used.clear();
+    }
+
+    void endPass(IProject project)
+    {
+        ProjectIndex index = indexOf(project);
+        if (index.entries.keySet().retainAll(index.used))
+            index.dirty = true;
+        if (stateLocation != null)
+            save(stateLocation, project.getName(), index);
+    }
+
+    // Saves and unloads a closed project, or discards a deleted project's index entirely
+    public void forget(IProject project, boolean deleted)
+    {
+        ProjectIndex index = byProject.remove(project.getName());
+        if (stateLocation == null)
+            return;
+        if (deleted)
+        {
+            // Waits for a save in progress, which would otherwise recreate the file
+            if (index != null)
+            {
+                synchronized (index)
+                {
+                    index.dirty = false;
+                    indexFile(stateLocation, project.getName()).delete();
+                }
+            }
+            else
+                indexFile(stateLocation, project.getName()).delete();
+        }
+        else if (index != null)
+            save(stateLocation, project.getName(), index);
+    }
+
+    // Each project's index is read when the project is first indexed
+    public void load(IPath stateLocation)
+    {
+        this.stateLocation = stateLocation;
+    }
+
+    private ProjectIndex indexOf(IProject project)
+    {
+        return byProject.computeIfAbsent(project.getName(), this::read);
+    }
+
+    private ProjectIndex read(String projectName)
+    {
+        if (stateLocation == null)
+            return new ProjectIndex();
+        File indexFile = indexFile(stateLocation, projectName);
+        if (!indexFile.exists())
+            return new ProjectIndex();
+        try (Reader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8))
+        {
+            return read(new JsonReader(reader));
+        }
+        catch (IOException | RuntimeException e)
+        {
+            Fabriclipse.LOGGER.warn("Discarding unreadable mixin index " + indexFile, e);
+            indexFile.delete();
+            return new ProjectIndex();
+        }
+    }
+
+    private static File indexFile(IPath stateLocation, String projectName)
+    {
+        return stateLocation.append(DIRECTORY).append(projectName + ".json").toFile();
+    }
+
+    public void save(IPath stateLocation)
+    {
+        for (Map.Entry<String, ProjectIndex> entry : byProject.entrySet())
+            save(stateLocation, entry.getKey(), entry.getValue());
+    }
+
+    // Saves of the same project are serialized, e.g. the end of an indexing pass and shutdown
+    private void save(IPath stateLocation, String projectName, ProjectIndex index)
+    {
+        synchronized (index)
+        {
+            if (!index.dirty)
+                return;
+            // Cleared first, so entries put while the index is written are saved next time
+            index.dirty = false;
+            File indexFile = indexFile(stateLocation, projectName);
+            File tempFile = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+            indexFile.getParentFile().mkdirs();
+            try
+            {
+                try (Writer writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8))
+                {
+                    write(new JsonWriter(writer), index);
+                }
+                try
+                {
+                    Files.move(tempFile.toPath(), indexFile.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                }
+                catch (AtomicMoveNotSupportedException e)
+                {
+                    Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            catch (IOException e)
+            {
+                index.dirty = true;
+                tempFile.delete();
+                Fabriclipse.LOGGER.error("Saving mixin index " + indexFile, e);
+            }
+        }
+    }
+
+    private static ProjectIndex read(JsonReader reader) throws IOException
+    {
+        ProjectIndex index = new ProjectIndex();
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+            String path = null, config = null;
+            long size = -1, lastModified = -1;
+            int format = 1;
+            List<CachedMixin> mixins = new ArrayList<>();
+            reader.beginObject();
+            while (reader.hasNext())
+            {
+                switch (reader.nextName())
+                {
+                case "format" -> format = reader.nextInt();
+                case "jar" -> path = reader.nextString();
+                case "size" -> size = reader.nextLong();
+                case "lastModified" -> lastModified = reader.nextLong();
+                case "config" -> config = reader.nextString();
+                case "mixins" -> readMixins(reader, mixins);
+                default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            // Entries written before mixins were stored by name are rescanned
+            if (format != FORMAT || mixins.stream().anyMatch(mixin -> mixin.name() == null))
+                continue;
+            index.entries.put(new ConfigKey(new JarFingerprint(path, size, lastModified), config), mixins);
+        }
+        reader.endArray();
+        return index;
+    }
+
+    private static void readMixins(JsonReader reader, List<CachedMixin> mixins) throws IOException
+    {
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+            String name = null;
+            Set<String> targets = new HashSet<>();
+            reader.beginObject();
+            while (reader.hasNext())
+            {
+                switch (reader.nextName())
+                {
+                case "name" -> name = reader.nextString();
+                case "targets" ->
+                {
+                    reader.beginArray();
+                    while (reader.hasNext())
+                        targets.add(reader.nextString());
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            mixins.add(new CachedMixin(name, targets));
+        }
+        reader.endArray();
+    }
+
+    private static void write(JsonWriter writer, ProjectIndex index) throws IOException
+    {
+        writer.beginArray();
+        for (Map.Entry<ConfigKey, List<CachedMixin>> entry : index.entries.entrySet())
+        {
+            JarFingerprint jar = entry.getKey().jar();
+            writer.beginObject()
+                .name("format").value(FORMAT)
+                .name("jar").value(jar.path())
+                .name("size").value(jar.size())
+                .name("lastModified").value(jar.lastModified())
+                .name("config").value(entry.getKey().config())
+                .name("mixins").beginArray();
+            for (CachedMixin mixin : entry.getValue())
+            {
+                writer.beginObject().name("name").value(mixin.name()).name("targets").beginArray();
+                for (String target : mixin.targets())
+                    writer.value(target);
+                writer.endArray().endObject();
+            }
+            writer.endArray().endObject();
+        }
+        writer.endArray();
+    }
+}
@@ -1,114 +1,413 @@
 package daomephsta.fabriclipse.mixin;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
 
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
-import com.google.common.collect.Streams;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 
 import daomephsta.fabriclipse.Fabriclipse;
+import daomephsta.fabriclipse.metadata.JarMod;
 import daomephsta.fabriclipse.metadata.Mod;
-import daomephsta.fabriclipse.metadata.ProjectEnvironmentManager;
+import daomephsta.fabriclipse.metadata.OpenJarCache;
+import daomephsta.fabriclipse.metadata.ProjectEnvironmentManager.ProjectEnvironment;
+import daomephsta.fabriclipse.mixin.MixinIndex.Entry;
+import daomephsta.fabriclipse.mixin.MixinIndex.Footprint;
 import daomephsta.fabriclipse.mixin.MixinStore.MixinInfo;
+import daomephsta.fabriclipse.mixin.PersistentMixinIndex.CachedMixin;
+import daomephsta.fabriclipse.util.ClassFileReader;
+import daomephsta.fabriclipse.util.ClassFileReader.Annotation;
+import daomephsta.fabriclipse.util.ClassFileReader.ClassValue;
 import daomephsta.fabriclipse.util.Mixins;
 
 public class ProjectMixins
 {
-    private static final Gson GSON = new GsonBuilder().create();
+    private static final String MIXIN_DESCRIPTOR = "Lorg/spongepowered/asm/mixin/Mixin;";
+    // Shared by all projects, so a reloaded project never reuses the version of a stale one
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private final IProject project;
     private final IJavaProject javaProject;
-    final Set<IType> all;
-    final Multimap<String, MixinInfo> byTarget;
-    final Multimap<String, MixinInfo> byConfig;
+    private final MixinIndex index = new MixinIndex();
+    // Fully qualified names of all mixins listed by a config, including those that don't exist (yet)
+    private final Map<String, String> configByMixinName = new ConcurrentHashMap<>();
+    // Configs that are part of the project, and may change
+    private final Map<String, Mod> sourceConfigs = new ConcurrentHashMap<>();
+    private final Map<String, Long> targetVersions = new ConcurrentHashMap<>();
+    // Package fragment roots of mod jars, to create mixin handles without searching the classpath
+    private final Map<IPath, Optional<IPackageFragmentRoot>> jarRoots = new ConcurrentHashMap<>();
 
     private ProjectMixins(IProject project)
     {
+        this.project = project;
         this.javaProject = JavaCore.create(project);
-        this.all = Sets.newConcurrentHashSet();
-        this.byTarget = concurrentMultimap();
-        this.byConfig = concurrentMultimap();
     }
 
-    static ProjectMixins forProject(IProject project)
+    static ProjectMixins forProject(IProject project, ProjectEnvironment environment, IProgressMonitor monitor)
     {
         ProjectMixins mixins = new ProjectMixins(project);
-        mixins.loadAllConfigs(project).join();
+        PersistentMixinIndex.INSTANCE.beginPass(project);
+        try
+        {
+            mixins.loadAllConfigs(environment, monitor);
+            // Only a complete pass knows which entries are stale
+            PersistentMixinIndex.INSTANCE.endPass(project);
+        }
+        finally
+        {
+            OpenJarCache.INSTANCE.closeIdle();
+        }
         return mixins;
     }
 
-    void removeByConfig(String config)
+    synchronized void removeByConfig(String config)
+    {
+        for (int id : index.idsByConfig(config))
+            targetsChanged(index.remove(id));
+        configByMixinName.values().removeIf(config::equals);
+        sourceConfigs.remove(config);
+    }
+
+    List<MixinInfo> mixinsFor(String target)
+    {
+        return index.mixinsFor(target);
+    }
+
+    boolean hasPending(String target)
+    {
+        return index.hasPending(target);
+    }
+
+    // Creates handles for the jar mixins targeting a class, on first use of that class
+    synchronized void resolvePending(String target) throws JavaModelException
     {
-        for (MixinInfo info : byConfig.removeAll(config))
+        for (int id : index.idsByTarget(target))
         {
-            byTarget.remove(info.target(), info.mixin());
-            all.remove(info.mixin());
+            Entry pending = index.get(id);
+            if (pending == null || !pending.isPending())
+                continue;
+            IType mixinClass = jarType(pending.jar(), pending.name());
+            if (mixinClass == null)
+            {
+                Fabriclipse.LOGGER.warn("Mixin " + pending.name() + " from " + pending.config() + " not found");
+                index.remove(id);
+            }
+            else
+                index.resolve(id, mixinClass, new MixinHandlers(mixinClass, mixinClass.isBinary()));
+            targetsChanged(pending);
         }
     }
 
-    private CompletableFuture<Void> loadAllConfigs(IProject project)
+    Footprint footprint()
     {
-        return ProjectEnvironmentManager.INSTANCE.getProjectEnvironment(project).thenAccept(environment ->
+        return index.footprint();
+    }
+
+    // Creates a handle without opening the jar or class file, unlike findType()
+    private IType jarType(IPath jar, String name) throws JavaModelException
+    {
+        Optional<IPackageFragmentRoot> root = jarRoots.get(jar);
+        if (root == null)
         {
-            for (Mod mod : environment.allMods())
+            root = Optional.ofNullable(javaProject.findPackageFragmentRoot(jar));
+            jarRoots.put(jar, root);
+        }
+        if (root.isEmpty())
+            return javaProject.findType(name);
+        int packageEnd = name.lastIndexOf('.');
+        return root.get().getPackageFragment(packageEnd != -1 ? name.substring(0, packageEnd) : "")
+            .getOrdinaryClassFile(name.substring(packageEnd + 1) + ".class").getType();
+    }
+
+    private void addPending(JarMod mod, String config, String mixinName, Set<String> targets)
+    {
+        Entry pending = Entry.pending(config, mixinName, mod.getJarPath(), targets);
+        index.add(pending);
+        targetsChanged(pending);
+    }
+
+    boolean isListed(IType type)
+    {
+        return configByMixinName.containsKey(type.getFullyQualifiedName());
+    }
+
+    boolean isSourceConfig(String config)
+    {
+        return sourceConfigs.containsKey(config);
+    }
+
+    // Recomputes the targets of a single mixin, returning all targets it had before or has now
+    synchronized Set<String> reindexMixin(IType mixinClass)
+    {
+        String config = configByMixinName.get(mixinClass.getFullyQualifiedName());
+        if (config == null)
+            return Collections.emptySet();
+        Set<String> affected = removeMixin(config, mixinClass);
+        if (mixinClass.exists())
+        {
+            Set<String> targets = Mixins.getTargetClasses(mixinClass);
+            addMixin(config, mixinClass, targets);
+            affected.addAll(targets);
+        }
+        return affected;
+    }
+
+    // Rereads the mixin names of a config, indexing only mixins that were added or removed
+    synchronized Set<String> reloadConfigNames(String config) throws CoreException, IOException
+    {
+        Mod mod = sourceConfigs.get(config);
+        if (mod == null)
+            return Collections.emptySet();
+        Set<String> listed = Sets.newHashSet(readMixinNames(mod, config));
+        Set<String> affected = new HashSet<>();
+        for (int id : index.idsByConfig(config))
+        {
+            Entry entry = index.get(id);
+            if (entry != null && !entry.isPending() && !listed.contains(entry.mixin().getFullyQualifiedName()))
+                affected.addAll(removeMixin(config, entry.mixin()));
+        }
+        configByMixinName.entrySet().removeIf(entry ->
+            entry.getValue().equals(config) && !listed.contains(entry.getKey()));
+        for (String mixinName : listed)
+        {
+            if (configByMixinName.putIfAbsent(mixinName, config) != null)
+                continue;
+            IType mixinClass = javaProject.findType(mixinName);
+            if (mixinClass != null)
+                affected.addAll(reindexMixin(mixinClass));
+        }
+        return affected;
+    }
+
+    private Set<String> removeMixin(String config, IType mixinClass)
+    {
+        Set<String> removedTargets = new HashSet<>();
+        for (int id : index.idsByConfig(config))
+        {
+            Entry entry = index.get(id);
+            if (entry != null && mixinClass.equals(entry.mixin()))
             {
-                for (String config : mod.getMetadata().getMixinConfigs())
-                {
-                    try
-                    {
-                        loadConfig(mod, config);
-                    }
-                    catch (CoreException | IOException e)
-                    {
-                        Fabriclipse.LOGGER.error("Loading " + config + " for " + project.getName(), e);
-                    }
-                }
+                index.remove(id);
+                Collections.addAll(removedTargets, entry.targets());
+                targetsChanged(entry);
             }
-        });
+        }
+        return removedTargets;
+    }
+
+    private void loadAllConfigs(ProjectEnvironment environment, IProgressMonitor monitor)
+    {
+        List<Map.Entry<Mod, String>> configs = new ArrayList<>();
+        for (Mod mod : environment.allMods())
+        {
+            for (String config : mod.getMetadata().getMixinConfigs())
+                configs.add(Map.entry(mod, config));
+        }
+        SubMonitor progress = SubMonitor.convert(monitor, configs.size());
+        for (Map.Entry<Mod, String> config : configs)
+        {
+            progress.split(1);
+            progress.subTask(config.getValue());
+            try
+            {
+                loadConfig(config.getKey(), config.getValue());
+            }
+            catch (CoreException | IOException e)
+            {
+                Fabriclipse.LOGGER.error("Loading " + config.getValue() + " for " + project.getName(), e);
+            }
+        }
     }
 
     void loadConfig(Mod mod, String config) throws CoreException, IOException
     {
-        for (String mixinName : readMixinNames(new InputStreamReader(mod.openResource(config))))
+        if (mod instanceof JarMod jarMod)
+        {
+            loadJarConfig(jarMod, config);
+            return;
+        }
+        sourceConfigs.put(config, mod);
+        for (String mixinName : readMixinNames(mod, config))
         {
+            configByMixinName.put(mixinName, config);
             IType mixinClass = javaProject.findType(mixinName);
-            for (String target : Mixins.getTargetClasses(mixinClass))
+            if (mixinClass == null)
+            {
+                Fabriclipse.LOGGER.warn("Mixin " + mixinName + " from " + config + " not found");
+                continue;
+            }
+            addMixin(config, mixinClass, Mixins.getTargetClasses(mixinClass));
+        }
+    }
+
+    // Jar mixins are only resolved when one of their targets is looked up, see resolvePending()
+    private synchronized void loadJarConfig(JarMod mod, String config) throws CoreException, IOException
+    {
+        var cached = PersistentMixinIndex.INSTANCE.get(project, mod.getFingerprint(), config);
+        if (cached != null)
+        {
+            for (CachedMixin mixin : cached)
+                addPending(mod, config, mixin.name(), mixin.targets());
+            return;
+        }
+        List<CachedMixin> indexed = new ArrayList<>();
+        for (String mixinName : readMixinNames(mod, config))
+        {
+            Set<String> targets = readTargetClasses(mod, mixinName);
+            if (targets == null)
+            {
+                // Unreadable bytecode, fall back to the Java model
+                IType mixinClass = javaProject.findType(mixinName);
+                if (mixinClass == null)
+                {
+                    Fabriclipse.LOGGER.warn("Mixin " + mixinName + " from " + config + " not found");
+                    continue;
+                }
+                targets = Mixins.getTargetClasses(mixinClass);
+            }
+            addPending(mod, config, mixinName, targets);
+            indexed.add(new CachedMixin(mixinName, targets));
+        }
+        PersistentMixinIndex.INSTANCE.put(project, mod.getFingerprint(), config, indexed);
+    }
+
+    // Reads the targets of @Mixin from bytecode, in the same form as Mixins.getTargetClasses(). Null if unreadable.
+    private static Set<String> readTargetClasses(Mod mod, String mixinName) throws CoreException
+    {
+        byte[] classFile;
+        try (InputStream in = mod.openResource(mixinName.replace('.', '/') + ".class"))
+        {
+            classFile = in.readAllBytes();
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+        try
+        {
+            for (Annotation annotation : new ClassFileReader(classFile).classAnnotations())
+            {
+                if (annotation.descriptor().equals(MIXIN_DESCRIPTOR))
+                    return readTargetClasses(annotation);
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            Fabriclipse.LOGGER.warn("Reading " + mixinName + " as bytecode", e);
+        }
+        return null;
+    }
+
+    // Class values are named like JDT names them, with '.' separating nested classes too
+    static Set<String> readTargetClasses(Annotation mixin)
+    {
+        Set<String> targets = new HashSet<>();
+        if (mixin.values().get("value") instanceof List<?> classes)
+        {
+            for (Object value : classes)
             {
-                MixinInfo info = new MixinInfo(target, mixinClass);
-                byTarget.put(info.target(), info);
-                byConfig.put(config, info);
-                all.add(info.mixin());
+                if (value instanceof ClassValue type && type.descriptor().startsWith("L"))
+                {
+                    String descriptor = type.descriptor();
+                    targets.add(descriptor.substring(1, descriptor.length() - 1).replace('/', '.').replace('$', '.'));
+                }
             }
         }
+        if (mixin.values().get("targets") instanceof List<?> names)
+        {
+            for (Object name : names)
+                targets.add((String) name);
+        }
+        return targets;
+    }
+
+    private void addMixin(String config, IType mixinClass, Set<String> targets)
+    {
+        Entry entry = Entry.resolved(config, mixinClass, new MixinHandlers(mixinClass), targets);
+        index.add(entry);
+        targetsChanged(entry);
+    }
+
+    long versionOf(String target)
+    {
+        return targetVersions.getOrDefault(target, 0L);
     }
 
-    private Iterable<String> readMixinNames(Reader configContents)
+    private void targetsChanged(Entry entry)
     {
-        JsonObject root = GSON.fromJson(configContents, JsonObject.class);
-        String packageName = root.get("package").getAsString();
-        return Stream.of("mixins", "client", "server")
-            .filter(root::has)
-            .flatMap(key -> Streams.stream(root.get(key).getAsJsonArray()))
-            .map(localName -> packageName + '.' + localName.getAsString())
-            .toList();
+        for (String target : entry.targets())
+            targetVersions.put(target, VERSIONS.incrementAndGet());
     }
 
-    private static <K, V> Multimap<K, V> concurrentMultimap()
+    private List<String> readMixinNames(Mod mod, String config) throws CoreException, IOException
     {
-        return Multimaps.newMultimap(new ConcurrentHashMap<>(), Sets::newConcurrentHashSet);
+        try (Reader reader = new InputStreamReader(mod.openResource(config)))
+        {
+            return readMixinNames(reader);
+        }
+    }
+
+    // Streams the config, skipping everything but the package and mixin lists. Fields may be in any order.
+    static List<String> readMixinNames(Reader configContents) throws IOException
+    {
+        JsonReader reader = new JsonReader(configContents);
+        // Mixin parses configs leniently, so comments and the like are allowed
+        reader.setLenient(true);
+        String packageName = null;
+        List<String> mixinNames = new ArrayList<>();
+        // Names read before the package are prefixed once it's known. Usually there are none.
+        int unprefixed = 0;
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            switch (reader.nextName())
+            {
+            case "package" -> packageName = reader.nextString();
+            case "mixins", "client", "server" ->
+            {
+                reader.beginArray();
+                while (reader.hasNext())
+                {
+                    if (packageName != null)
+                        mixinNames.add(packageName + '.' + reader.nextString());
+                    else
+                    {
+                        mixinNames.add(reader.nextString());
+                        unprefixed++;
+                    }
+                }
+                reader.endArray();
+            }
+            default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (packageName == null)
+            throw new JsonParseException("Mixin config has no package");
+        for (int i = 0; i < unprefixed; i++)
+            mixinNames.set(i, packageName + '.' + mixinNames.get(i));
+        return mixinNames;
     }
-}
\ No newline at end of file
+}
@@ -9,8 +9,6 @@ public class Quantifier
     private final int lowerBound,
                       upperBound,
                       minimumMatches;
-    private int index = 1; //1-indexed, not 0-indexed
-    private int matches = 0;
 
     private Quantifier(int lowerOrdinal, int upperOrdinal, int minimumMatches)
     {
@@ -28,41 +26,61 @@ public class Quantifier
     {
         if (quantifier == null) // Match first
             return new Quantifier(1, 1);
-        else if (quantifier.equals("*")) // Match all
+        return parse(quantifier, 0, quantifier.length());
+    }
+
+    // Parses the quantifier between start (inclusive) and end (exclusive)
+    static Quantifier parse(String spec, int start, int end)
+    {
+        if (end - start == 1 && spec.charAt(start) == '*') // Match all
             return new Quantifier(1, Integer.MAX_VALUE);
-        else if (quantifier.equals("+")) // Match all, error if < 1 match
+        else if (end - start == 1 && spec.charAt(start) == '+') // Match all, error if < 1 match
             return new Quantifier(1, Integer.MAX_VALUE, 1);
-        else if (quantifier.startsWith("{"))
+        else if (end - start > 2 && spec.charAt(start) == '{' && spec.charAt(end - 1) == '}')
         {
-            String[] bounds = quantifier.substring(1, quantifier.length() - 1).split(",");
-            if (bounds.length == 1)
+            int comma = spec.indexOf(',', start);
+            if (comma == -1 || comma >= end)
             {
                 // Match exact index
-                int exact = Integer.parseInt(bounds[0]);
+                int exact = parseBound(spec, start + 1, end - 1, -1);
                 return new Quantifier(exact, exact);
             }
             // Match exact lowerBound <= index <= upperBound
-            int lowerOrdinal = bounds[0].isEmpty() ? 1 : Integer.parseInt(bounds[0]);
-            int upperOrdinal = bounds[1].isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(bounds[1]);
+            int lowerOrdinal = parseBound(spec, start + 1, comma, 1);
+            int upperOrdinal = parseBound(spec, comma + 1, end - 1, Integer.MAX_VALUE);
             return new Quantifier(lowerOrdinal, upperOrdinal, lowerOrdinal);
         }
         else
-            throw new IllegalArgumentException("Invalid quantifier " + quantifier);
+            throw new IllegalArgumentException("Invalid quantifier " + spec.substring(start, end));
     }
 
-    public boolean matches()
+    private static int parseBound(String spec, int start, int end, int defaultValue)
     {
-        if (lowerBound <= index && index <= upperBound)
+        if (start == end && defaultValue != -1)
+            return defaultValue;
+        try
         {
-            matches += 1;
-            index += 1;
-            return true;
+            return Integer.parseInt(spec, start, end, 10);
         }
-        index += 1;
-        return false;
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid quantifier bound " + spec.substring(start, end), e);
+        }
+    }
+
+    // index is 1-indexed, not 0-indexed
+    public boolean selects(int index)
+    {
+        return lowerBound <= index && index <= upperBound;
+    }
+
+    // No later index can be selected
+    boolean isExhausted(int index)
+    {
+        return index >= upperBound;
     }
 
-    public void assertSatisfied(String context)
+    public void assertSatisfied(int matches, String context)
     {
         if (matches < minimumMatches)
         {
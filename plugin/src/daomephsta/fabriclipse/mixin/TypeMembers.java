@@ -0,0 +1,132 @@
+package daomephsta.fabriclipse.mixin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeParameter;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.Signature;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+// Methods of a type by name, with erased parameter types. Built once per type, so matching
+// a selector only looks at methods with the right name, and never erases a type twice.
+class TypeMembers
+{
+    // Type handle identifier -> members. Only used for class files, which don't change.
+    private static final Cache<String, TypeMembers> CACHE = CacheBuilder.newBuilder()
+        .maximumSize(16)
+        .expireAfterAccess(10, TimeUnit.MINUTES)
+        .build();
+    private final List<IndexedMethod> all;
+    // Declaration order is kept, as quantifiers depend on it
+    private final Map<String, List<IndexedMethod>> byName;
+
+    record IndexedMethod(IMethod method, String[] erasedParameterTypes) {}
+
+    private TypeMembers(IType type) throws JavaModelException
+    {
+        IMethod[] methods = type.getMethods();
+        this.all = new ArrayList<>(methods.length);
+        this.byName = new LinkedHashMap<>();
+        for (IMethod method : methods)
+        {
+            String[] parameterTypes = method.getParameterTypes();
+            String[] erased = new String[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++)
+                erased[i] = erase(method, parameterTypes[i]);
+            var indexed = new IndexedMethod(method, erased);
+            all.add(indexed);
+            String name = method.isConstructor() ? "<init>" : method.getElementName();
+            byName.computeIfAbsent(name, k -> new ArrayList<>()).add(indexed);
+        }
+    }
+
+    static TypeMembers of(IType type) throws JavaModelException
+    {
+        if (!type.isBinary())
+            return new TypeMembers(type);
+        try
+        {
+            return CACHE.get(type.getHandleIdentifier(), () -> new TypeMembers(type));
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof JavaModelException jme)
+                throw jme;
+            throw new IllegalStateException("Indexing members of " + type.getFullyQualifiedName('.'), e.getCause());
+        }
+    }
+
+    // Drops the members of a closed project's types
+    static void forget(IProject project)
+    {
+        CACHE.asMap().keySet().removeIf(handle -> MixinStore.belongsTo(handle, project));
+    }
+
+    // All methods if name is null
+    List<IndexedMethod> named(String name)
+    {
+        if (name == null)
+            return all;
+        return byName.getOrDefault(name, Collections.emptyList());
+    }
+
+    IndexedMethod find(String name, String[] parameterTypes)
+    {
+        for (IndexedMethod candidate : named(name))
+        {
+            if (candidate.erasedParameterTypes().length != parameterTypes.length)
+                continue;
+            boolean matches = true;
+            for (int i = 0; i < parameterTypes.length && matches; i++)
+            {
+                matches = MethodSpec.areTypesEqual(candidate.erasedParameterTypes()[i],
+                    Signature.getTypeErasure(parameterTypes[i]));
+            }
+            if (matches)
+                return candidate;
+        }
+        return null;
+    }
+
+    private static String erase(IMethod candidate, String signature) throws JavaModelException
+    {
+        if (Signature.getTypeSignatureKind(signature) == Signature.TYPE_VARIABLE_SIGNATURE)
+        {
+            ITypeParameter typeParameter = findTypeParameter(candidate, Signature.getSignatureSimpleName(signature));
+            String[] bounds = typeParameter.getBoundsSignatures();
+            if (bounds.length == 0)
+                return Signature.createTypeSignature(Object.class.getName(), true);
+            // Erasure always uses the first bound
+            return erase(candidate, bounds[0]);
+        }
+        return Signature.getTypeErasure(signature);
+    }
+
+    private static ITypeParameter findTypeParameter(IMethod candidate, String signature)
+    {
+        ITypeParameter typeParameter = null;
+        IJavaElement element = candidate;
+        do
+        {
+            if (element instanceof IMethod method)
+                typeParameter = method.getTypeParameter(signature);
+            else if (element instanceof IType type)
+                typeParameter = type.getTypeParameter(signature);
+            element = element.getParent();
+        }
+        while (!typeParameter.exists() && element.getParent() != null);
+        return typeParameter;
+    }
+}
@@ -0,0 +1,283 @@
+package daomephsta.fabriclipse.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Reads the annotations of a class straight from its bytecode, without building a JDT model.
+// Only the constant pool entries that are actually used are decoded.
+public class ClassFileReader
+{
+    private static final int MAGIC = 0xCAFEBABE;
+    private final byte[] classFile;
+    private final ByteBuffer buffer;
+    // Offset of each constant pool entry, just after its tag
+    private final int[] constantOffsets;
+    private final int headerOffset;
+
+    // Element values are Strings, boxed primitives, ClassValues, EnumValues, Annotations or Lists of those
+    public record Annotation(String descriptor, Map<String, Object> values) {}
+
+    public record ClassValue(String descriptor) {}
+
+    public record EnumValue(String descriptor, String name) {}
+
+    // signature is the generic signature, or null if the method has none
+    public record Method(int access, String name, String descriptor, String signature, List<Annotation> annotations) {}
+
+    public ClassFileReader(byte[] classFile)
+    {
+        this.classFile = classFile;
+        this.buffer = ByteBuffer.wrap(classFile);
+        try
+        {
+            if (buffer.getInt() != MAGIC)
+                throw new IllegalArgumentException("Not a class file");
+            buffer.getShort(); // Minor version
+            buffer.getShort(); // Major version
+            this.constantOffsets = new int[buffer.getShort() & 0xFFFF];
+            readConstantPool();
+            this.headerOffset = buffer.position();
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException e)
+        {
+            throw malformed(e);
+        }
+    }
+
+    // Thrown for any malformed class file, so callers only need to handle IllegalArgumentException
+    private static IllegalArgumentException malformed(RuntimeException e)
+    {
+        return new IllegalArgumentException(e instanceof BufferUnderflowException
+            ? "Truncated class file" : "Malformed class file", e);
+    }
+
+    private void readConstantPool()
+    {
+        for (int i = 1; i < constantOffsets.length; i++)
+        {
+            int tag = buffer.get();
+            constantOffsets[i] = buffer.position();
+            switch (tag)
+            {
+            case 1 -> buffer.position(buffer.position() + 2 + (buffer.getShort(buffer.position()) & 0xFFFF)); // Utf8
+            case 7, 8, 16, 19, 20 -> buffer.position(buffer.position() + 2); // Class, String, MethodType, Module, Package
+            case 15 -> buffer.position(buffer.position() + 3); // MethodHandle
+            case 3, 4, 9, 10, 11, 12, 17, 18 -> buffer.position(buffer.position() + 4);
+            case 5, 6 -> // Long and Double take two entries
+            {
+                buffer.position(buffer.position() + 8);
+                i += 1;
+            }
+            default -> throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+        }
+    }
+
+    // Visible and invisible annotations of the class itself
+    public List<Annotation> classAnnotations()
+    {
+        try
+        {
+            skipHeader();
+            skipMembers(); // Fields
+            skipMembers(); // Methods
+            return readAnnotationAttributes();
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException e)
+        {
+            throw malformed(e);
+        }
+    }
+
+    // Methods in declaration order, with their visible and invisible annotations
+    public List<Method> methods()
+    {
+        try
+        {
+            skipHeader();
+            skipMembers(); // Fields
+            int count = buffer.getShort() & 0xFFFF;
+            List<Method> methods = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+            {
+                int access = buffer.getShort() & 0xFFFF;
+                String name = utf8(buffer.getShort() & 0xFFFF);
+                String descriptor = utf8(buffer.getShort() & 0xFFFF);
+                String signature = null;
+                List<Annotation> annotations = new ArrayList<>();
+                int attributes = buffer.getShort() & 0xFFFF;
+                for (int j = 0; j < attributes; j++)
+                {
+                    int nameIndex = buffer.getShort() & 0xFFFF;
+                    int length = buffer.getInt();
+                    int end = buffer.position() + length;
+                    if (utf8Equals(nameIndex, "Signature"))
+                        signature = utf8(buffer.getShort() & 0xFFFF);
+                    else if (isAnnotations(nameIndex))
+                        readAnnotations(annotations);
+                    buffer.position(end);
+                }
+                methods.add(new Method(access, name, descriptor, signature, annotations));
+            }
+            return methods;
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException e)
+        {
+            throw malformed(e);
+        }
+    }
+
+    private void skipHeader()
+    {
+        buffer.position(headerOffset + 6); // Access flags, this class, super class
+        int interfaces = buffer.getShort() & 0xFFFF;
+        buffer.position(buffer.position() + 2 * interfaces);
+    }
+
+    private void skipMembers()
+    {
+        int members = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < members; i++)
+        {
+            buffer.position(buffer.position() + 6); // Access flags, name, descriptor
+            skipAttributes();
+        }
+    }
+
+    private void skipAttributes()
+    {
+        int attributes = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < attributes; i++)
+        {
+            buffer.getShort(); // Name
+            int length = buffer.getInt();
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    private List<Annotation> readAnnotationAttributes()
+    {
+        List<Annotation> annotations = new ArrayList<>();
+        int attributes = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < attributes; i++)
+        {
+            int nameIndex = buffer.getShort() & 0xFFFF;
+            int length = buffer.getInt();
+            int end = buffer.position() + length;
+            if (isAnnotations(nameIndex))
+                readAnnotations(annotations);
+            buffer.position(end);
+        }
+        return annotations;
+    }
+
+    private boolean isAnnotations(int attributeName)
+    {
+        return utf8Equals(attributeName, "RuntimeInvisibleAnnotations") ||
+            utf8Equals(attributeName, "RuntimeVisibleAnnotations");
+    }
+
+    private void readAnnotations(List<Annotation> into)
+    {
+        int count = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < count; i++)
+            into.add(readAnnotation());
+    }
+
+    private Annotation readAnnotation()
+    {
+        String descriptor = utf8(buffer.getShort() & 0xFFFF);
+        int pairs = buffer.getShort() & 0xFFFF;
+        Map<String, Object> values = new LinkedHashMap<>(pairs * 2);
+        for (int i = 0; i < pairs; i++)
+        {
+            String name = utf8(buffer.getShort() & 0xFFFF);
+            values.put(name, readElementValue());
+        }
+        return new Annotation(descriptor, values);
+    }
+
+    private Object readElementValue()
+    {
+        char tag = (char) buffer.get();
+        return switch (tag)
+        {
+        case 'B' -> (byte) constantInt(buffer.getShort() & 0xFFFF);
+        case 'C' -> (char) constantInt(buffer.getShort() & 0xFFFF);
+        case 'S' -> (short) constantInt(buffer.getShort() & 0xFFFF);
+        case 'Z' -> constantInt(buffer.getShort() & 0xFFFF) != 0;
+        case 'I' -> constantInt(buffer.getShort() & 0xFFFF);
+        case 'F' -> Float.intBitsToFloat(constantInt(buffer.getShort() & 0xFFFF));
+        case 'J' -> buffer.getLong(constantOffset(buffer.getShort() & 0xFFFF));
+        case 'D' -> Double.longBitsToDouble(buffer.getLong(constantOffset(buffer.getShort() & 0xFFFF)));
+        case 's' -> utf8(buffer.getShort() & 0xFFFF);
+        case 'e' -> new EnumValue(utf8(buffer.getShort() & 0xFFFF), utf8(buffer.getShort() & 0xFFFF));
+        case 'c' -> new ClassValue(utf8(buffer.getShort() & 0xFFFF));
+        case '@' -> readAnnotation();
+        case '[' ->
+        {
+            int count = buffer.getShort() & 0xFFFF;
+            List<Object> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+                values.add(readElementValue());
+            yield values;
+        }
+        default -> throw new IllegalArgumentException("Unknown element value tag " + tag);
+        };
+    }
+
+    // Index 0 and the second entry of a Long or Double have no offset
+    private int constantOffset(int index)
+    {
+        if (index >= constantOffsets.length || constantOffsets[index] == 0)
+            throw new IllegalArgumentException("Invalid constant pool index " + index);
+        return constantOffsets[index];
+    }
+
+    private int constantInt(int index)
+    {
+        return buffer.getInt(constantOffset(index));
+    }
+
+    private boolean utf8Equals(int index, String expected)
+    {
+        int offset = constantOffset(index);
+        int length = buffer.getShort(offset) & 0xFFFF;
+        if (length != expected.length())
+            return false;
+        // Attribute names are ASCII, so their modified UTF-8 encoding is one byte per char
+        for (int i = 0; i < length; i++)
+        {
+            if (classFile[offset + 2 + i] != expected.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private String utf8(int index)
+    {
+        int offset = constantOffset(index);
+        int length = buffer.getShort(offset) & 0xFFFF;
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++)
+            ascii = classFile[offset + 2 + i] > 0;
+        if (ascii)
+            return new String(classFile, offset + 2, length, StandardCharsets.ISO_8859_1);
+        try
+        {
+            return new DataInputStream(new ByteArrayInputStream(classFile, offset, length + 2)).readUTF();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalArgumentException("Malformed modified UTF-8 at constant pool index " + index, e);
+        }
+    }
+}
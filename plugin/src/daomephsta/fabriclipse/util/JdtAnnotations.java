@@ -23,6 +23,14 @@ public class JdtAnnotations
         }
     }
 
+    // Binary annotations are named by qualified name, source annotations as written, usually by simple name
+    public static boolean isNamed(IAnnotation annotation, String qualifiedName)
+    {
+        String name = annotation.getElementName();
+        return name.equals(qualifiedName) || qualifiedName.endsWith(name) &&
+            qualifiedName.charAt(qualifiedName.length() - name.length() - 1) == '.';
+    }
+
     public static IMemberValuePair member(IAnnotation annotation, String name) throws JavaModelException
     {
         for (IMemberValuePair member : annotation.getMemberValuePairs())
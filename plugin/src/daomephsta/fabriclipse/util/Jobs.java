@@ -0,0 +1,111 @@
+package daomephsta.fabriclipse.util;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+
+// Background work for a project, run as Eclipse jobs so it reports progress and can be cancelled.
+// Jobs of the same project run one at a time, and belong to a family so they can be cancelled together.
+public class Jobs
+{
+    @FunctionalInterface
+    public interface Task<T>
+    {
+        T run(IProgressMonitor monitor) throws CoreException;
+    }
+
+    private record ProjectFamily(IProject project) {}
+
+    // Doesn't lock the project itself, which would block builds and resource changes
+    private record ProjectRule(IProject project) implements ISchedulingRule
+    {
+        @Override
+        public boolean contains(ISchedulingRule rule)
+        {
+            return equals(rule);
+        }
+
+        @Override
+        public boolean isConflicting(ISchedulingRule rule)
+        {
+            return equals(rule);
+        }
+    }
+
+    // Cancelling the returned future cancels the job, cancelling the job cancels the future
+    public static <T> CompletableFuture<T> schedule(String name, IProject project, Task<T> task)
+    {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ProjectFamily family = new ProjectFamily(project);
+        Job job = new Job(name)
+        {
+            @Override
+            protected IStatus run(IProgressMonitor monitor)
+            {
+                if (result.isDone() || monitor.isCanceled())
+                {
+                    result.cancel(false);
+                    return Status.CANCEL_STATUS;
+                }
+                try
+                {
+                    result.complete(task.run(monitor));
+                    return Status.OK_STATUS;
+                }
+                catch (OperationCanceledException e)
+                {
+                    result.cancel(false);
+                    return Status.CANCEL_STATUS;
+                }
+                catch (CoreException e)
+                {
+                    result.completeExceptionally(e);
+                    return e.getStatus();
+                }
+                catch (RuntimeException | Error e)
+                {
+                    result.completeExceptionally(e);
+                    throw e;
+                }
+            }
+
+            @Override
+            public boolean belongsTo(Object jobFamily)
+            {
+                return family.equals(jobFamily);
+            }
+        };
+        job.setRule(new ProjectRule(project));
+        job.addJobChangeListener(new JobChangeAdapter()
+        {
+            @Override
+            public void done(IJobChangeEvent event)
+            {
+                // Jobs cancelled before they start never run
+                if (!result.isDone())
+                    result.cancel(false);
+            }
+        });
+        result.whenComplete((value, e) ->
+        {
+            if (result.isCancelled())
+                job.cancel();
+        });
+        job.schedule();
+        return result;
+    }
+
+    public static void cancel(IProject project)
+    {
+        Job.getJobManager().cancel(new ProjectFamily(project));
+    }
+}
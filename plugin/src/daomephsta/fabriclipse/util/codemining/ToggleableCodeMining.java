@@ -1,5 +1,9 @@
 package daomephsta.fabriclipse.util.codemining;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
@@ -15,18 +19,26 @@ import org.eclipse.jface.text.codemining.LineContentCodeMining;
 import org.eclipse.jface.text.codemining.LineHeaderCodeMining;
 import org.eclipse.swt.events.MouseEvent;
 
+import com.google.common.collect.MapMaker;
+
 // Minings are toggled instead of the provider returning an empty list. The latter is ideal,
 // but it's unclear how to get Eclipse to recompute and draw minings when the toggle changes.
 public abstract class ToggleableCodeMining
 {
+    // One toggle per preference key is shared by all minings, to avoid a listener per mining
     private static class Toggle implements IPreferenceChangeListener
     {
-        private final String prefQualifier, prefKey;
-        private boolean active;
-
-        Toggle(String fullPrefKey)
+        // Guarded by itself
+        private static final Map<String, Toggle> TOGGLES = new HashMap<>();
+        private final String fullPrefKey, prefQualifier, prefKey;
+        private volatile boolean active;
+        // Minings of cancelled or superseded runs are never disposed, so they're held weakly
+        private final Set<AbstractCodeMining> minings = Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
+
+        private Toggle(String fullPrefKey)
         {
             int prefSeparator = fullPrefKey.lastIndexOf('.');
+            this.fullPrefKey = fullPrefKey;
             this.prefQualifier = fullPrefKey.substring(0, prefSeparator);
             this.prefKey = fullPrefKey.substring(prefSeparator + 1);
             IEclipsePreferences prefs = InstanceScope.INSTANCE.getNode(prefQualifier);
@@ -34,6 +46,16 @@ public abstract class ToggleableCodeMining
             prefs.addPreferenceChangeListener(this);
         }
 
+        static Toggle acquire(String fullPrefKey, AbstractCodeMining mining)
+        {
+            synchronized (TOGGLES)
+            {
+                Toggle toggle = TOGGLES.computeIfAbsent(fullPrefKey, Toggle::new);
+                toggle.minings.add(mining);
+                return toggle;
+            }
+        }
+
         @Override
         public void preferenceChange(PreferenceChangeEvent e)
         {
@@ -41,9 +63,17 @@ public abstract class ToggleableCodeMining
                 this.active = Boolean.valueOf((String) e.getNewValue());
         }
 
-        public void dispose()
+        public void release(AbstractCodeMining mining)
         {
-            InstanceScope.INSTANCE.getNode(prefQualifier).removePreferenceChangeListener(this);
+            synchronized (TOGGLES)
+            {
+                // A mining disposed twice, or after its toggle was released, is ignored
+                if (minings.remove(mining) && minings.isEmpty())
+                {
+                    TOGGLES.remove(fullPrefKey);
+                    InstanceScope.INSTANCE.getNode(prefQualifier).removePreferenceChangeListener(this);
+                }
+            }
         }
     }
 
@@ -53,15 +83,14 @@ public abstract class ToggleableCodeMining
     {
         int line = document.getLineOfOffset(position.getOffset());
         int column = position.getOffset() - document.getLineOffset(line);
-        return new Inline(position, provider, clickAction,
-            line, column, new Toggle(prefKey));
+        return new Inline(position, provider, clickAction, line, column, prefKey);
     }
 
     public static AbstractCodeMining header(int line, IDocument document,
         ICodeMiningProvider provider, Consumer<MouseEvent> clickAction, String prefKey)
         throws BadLocationException
     {
-        return new Header(line, document, provider, clickAction, new Toggle(prefKey));
+        return new Header(line, document, provider, clickAction, prefKey);
     }
 
     private static class Inline extends LineContentCodeMining
@@ -70,12 +99,12 @@ public abstract class ToggleableCodeMining
         private final Toggle toggle;
 
         private Inline(Position position, ICodeMiningProvider provider,
-            Consumer<MouseEvent> clickAction, int line, int column, Toggle toggle)
+            Consumer<MouseEvent> clickAction, int line, int column, String prefKey)
         {
             super(position, provider, clickAction);
             this.line = line;
             this.column = column;
-            this.toggle = toggle;
+            this.toggle = Toggle.acquire(prefKey, this);
         }
 
         @Override
@@ -94,7 +123,7 @@ public abstract class ToggleableCodeMining
         public void dispose()
         {
             super.dispose();
-            toggle.dispose();
+            toggle.release(this);
         }
 
         @Override
@@ -111,11 +140,11 @@ public abstract class ToggleableCodeMining
         private final Toggle toggle;
 
         private Header(int line, IDocument document, ICodeMiningProvider provider,
-            Consumer<MouseEvent> action, Toggle toggle) throws BadLocationException
+            Consumer<MouseEvent> action, String prefKey) throws BadLocationException
         {
             super(line, document, provider, action);
             this.line = line;
-            this.toggle = toggle;
+            this.toggle = Toggle.acquire(prefKey, this);
         }
 
         @Override
@@ -134,7 +163,7 @@ public abstract class ToggleableCodeMining
         public void dispose()
         {
             super.dispose();
-            toggle.dispose();
+            toggle.release(this);
         }
 
         @Override
@@ -0,0 +1,54 @@
+package daomephsta.fabriclipse.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonParseException;
+
+public class ModMetadataTests
+{
+    @Test
+    public void read() throws IOException
+    {
+        // Fields in any order, and irrelevant subtrees skipped
+        ModMetadata metadata = ModMetadata.ADAPTER.fromJson("""
+            {
+              "mixins": ["a.mixins.json", {"environment": "client", "config": "b.mixins.json"}],
+              "custom": {"example:key": {"nested": [1, 2, {"deep": null}]}},
+              "jars": [{"file": "META-INF/jars/nested.jar"}],
+              "id": "example",
+              "schemaVersion": 1
+            }
+            """);
+        assertEquals("example", metadata.getId());
+        assertEquals(Set.of("a.mixins.json", "b.mixins.json"), metadata.getMixinConfigs());
+        assertEquals(List.of("META-INF/jars/nested.jar"), metadata.getNestedJars());
+    }
+
+    @Test
+    public void roundTrip() throws IOException
+    {
+        ModMetadata metadata = ModMetadata.ADAPTER.fromJson(
+            "{\"schemaVersion\": 1, \"id\": \"example\", \"mixins\": [\"a.mixins.json\"]," +
+            " \"jars\": [{\"file\": \"META-INF/jars/nested.jar\"}]}");
+        ModMetadata reread = ModMetadata.ADAPTER.fromJsonTree(ModMetadata.ADAPTER.toJsonTree(metadata));
+        assertEquals(metadata.getId(), reread.getId());
+        assertEquals(metadata.getMixinConfigs(), reread.getMixinConfigs());
+        assertEquals(metadata.getNestedJars(), reread.getNestedJars());
+    }
+
+    @Test
+    public void invalid()
+    {
+        assertThrows(JsonParseException.class, () -> ModMetadata.ADAPTER.fromJson("[]"));
+        assertThrows(JsonParseException.class, () -> ModMetadata.ADAPTER.fromJson("{\"schemaVersion\": 1}"));
+        assertThrows(JsonParseException.class,
+            () -> ModMetadata.ADAPTER.fromJson("{\"schemaVersion\": 1, \"id\": \"example\", \"mixins\": [1]}"));
+    }
+}
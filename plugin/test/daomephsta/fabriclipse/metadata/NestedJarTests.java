@@ -0,0 +1,124 @@
+package daomephsta.fabriclipse.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.core.runtime.Path;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class NestedJarTests
+{
+    private static final byte[] CONTENTS = "Some text that compresses well, well, well".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void storedAndDeflated() throws IOException
+    {
+        NestedJar jar = new NestedJar(zip(Map.of("stored.txt", CONTENTS), Map.of("deflated.txt", CONTENTS)));
+        assertArrayEquals(CONTENTS, read(jar.open("stored.txt")));
+        assertArrayEquals(CONTENTS, read(jar.open("deflated.txt")));
+        assertNull(jar.open("missing.txt"));
+    }
+
+    @Test
+    public void notAJar()
+    {
+        assertThrows(ZipException.class, () -> new NestedJar(CONTENTS));
+    }
+
+    @Test
+    public void malformed() throws IOException
+    {
+        byte[] jar = zip(Map.of("stored.txt", CONTENTS), Map.of());
+        // The name length of the first central directory entry
+        int central = lastIndexOf(jar, new byte[] {0x50, 0x4B, 0x01, 0x02});
+        jar[central + 28] = (byte) 0xFF;
+        jar[central + 29] = 0x7F;
+        assertThrows(ZipException.class, () -> new NestedJar(jar));
+    }
+
+    @Test
+    public void nestedMods(@TempDir java.nio.file.Path dir) throws IOException
+    {
+        // Nested jars are usually stored, but may be deflated
+        byte[] inner = zip(Map.of(), Map.of("inner.txt", CONTENTS));
+        byte[] middle = zip(Map.of("META-INF/jars/inner.jar", inner), Map.of("middle.txt", CONTENTS));
+        java.nio.file.Path outerFile = dir.resolve("outer.jar");
+        Files.write(outerFile, zip(Map.of(), Map.of("META-INF/jars/middle.jar", middle)));
+
+        JarMod outer = new JarMod(null, Path.fromOSString(outerFile.toString()));
+        var middleMod = new NestedJarMod(null, outer, "META-INF/jars/middle.jar",
+            outer.getFingerprint().nested("META-INF/jars/middle.jar"));
+        var innerMod = new NestedJarMod(null, middleMod, "META-INF/jars/inner.jar",
+            middleMod.getFingerprint().nested("META-INF/jars/inner.jar"));
+        assertArrayEquals(CONTENTS, read(middleMod.openResource("middle.txt")));
+        assertArrayEquals(CONTENTS, read(innerMod.openResource("inner.txt")));
+        assertThrows(FileNotFoundException.class, () -> innerMod.openResource("middle.txt"));
+    }
+
+    @AfterAll
+    public static void closeJars()
+    {
+        OpenJarCache.INSTANCE.closeIdle();
+    }
+
+    private static byte[] read(InputStream in) throws IOException
+    {
+        try (in)
+        {
+            return in.readAllBytes();
+        }
+    }
+
+    private static int lastIndexOf(byte[] bytes, byte[] sought)
+    {
+        for (int i = bytes.length - sought.length; i >= 0; i--)
+        {
+            if (Arrays.equals(bytes, i, i + sought.length, sought, 0, sought.length))
+                return i;
+        }
+        throw new IllegalArgumentException("Not found");
+    }
+
+    private static byte[] zip(Map<String, byte[]> stored, Map<String, byte[]> deflated) throws IOException
+    {
+        var bytes = new ByteArrayOutputStream();
+        try (var zip = new ZipOutputStream(bytes))
+        {
+            for (Map.Entry<String, byte[]> entry : stored.entrySet())
+            {
+                var zipEntry = new ZipEntry(entry.getKey());
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(entry.getValue().length);
+                CRC32 crc = new CRC32();
+                crc.update(entry.getValue());
+                zipEntry.setCrc(crc.getValue());
+                zip.putNextEntry(zipEntry);
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+            for (Map.Entry<String, byte[]> entry : deflated.entrySet())
+            {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
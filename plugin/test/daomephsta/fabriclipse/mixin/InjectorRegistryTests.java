@@ -0,0 +1,30 @@
+package daomephsta.fabriclipse.mixin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import daomephsta.fabriclipse.mixin.InjectorRegistry.Injector;
+
+public class InjectorRegistryTests
+{
+    @Test
+    public void builtIn()
+    {
+        Injector inject = InjectorRegistry.INSTANCE.get("org.spongepowered.asm.mixin.injection.Inject");
+        assertEquals(new Injector("org.spongepowered.asm.mixin.injection.Inject", "@Inject", "method"), inject);
+        // Source annotations are usually named by simple name
+        assertEquals(inject, InjectorRegistry.INSTANCE.get("Inject"));
+        assertEquals("@ModifyArgs", InjectorRegistry.INSTANCE.get("ModifyArgs").label());
+    }
+
+    @Test
+    public void notInjectors()
+    {
+        assertNull(InjectorRegistry.INSTANCE.get("org.spongepowered.asm.mixin.Overwrite"));
+        assertNull(InjectorRegistry.INSTANCE.get("Overwrite"));
+        // Simple names only match annotations named by simple name
+        assertNull(InjectorRegistry.INSTANCE.get("example.Inject"));
+    }
+}
@@ -2,12 +2,19 @@ package daomephsta.fabriclipse.mixin;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.List;
 import java.util.stream.Stream;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import daomephsta.fabriclipse.mixin.TypeMembers.IndexedMethod;
 
 public class MethodSpecTests
 {
@@ -55,7 +62,9 @@ public class MethodSpecTests
             // takes three doubles and returns void
             Arguments.arguments("Lfoo/bar/Baz;func_1234_a(DDD)V", "Lfoo/bar/Baz;", "func_1234_a", new String[] {"D", "D", "D"}, "V", Quantifier.parse(null)),
             // alternate syntax for the same
-            Arguments.arguments("foo.bar.Baz.func_1234_a(DDD)V", "foo.bar.Baz", "func_1234_a", new String[] {"D", "D", "D"}, "V", Quantifier.parse(null)));
+            Arguments.arguments("foo.bar.Baz.func_1234_a(DDD)V", "foo.bar.Baz", "func_1234_a", new String[] {"D", "D", "D"}, "V", Quantifier.parse(null)),
+            // dots are allowed inside the descriptor
+            Arguments.arguments("func_1234_a(Ljava.lang.String;[I)V", null, "func_1234_a", new String[] {"Ljava.lang.String;", "[I"}, "V", Quantifier.parse(null)));
     }
 
     @ParameterizedTest(name = "{0}")
@@ -71,6 +80,55 @@ public class MethodSpecTests
         assertEquals(quantifier, result.quantifier);
     }
 
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"func_1234_a{", "func_1234_a{}", "func_1234_a{a}", "func_1234_a(I", "func_1234_a(I)",
+        "func_1234_a(Q)V", "func_1234_a(V)V", "func_1234_a(Ljava/lang/String)V", "func_1234_a(I)VV", "func_1234_a*+"})
+    public void parseInvalid(String specification)
+    {
+        assertThrows(IllegalArgumentException.class, () -> MethodSpec.parse(specification));
+    }
+
+    @Test
+    public void openUpperBound()
+    {
+        // {3,} matches 3 or more, unlike {3}
+        assertNotEquals(Quantifier.parse("{3}"), Quantifier.parse("{3,}"));
+        assertEquals(Quantifier.parse("{3,}"), MethodSpec.parse("func_1234_a{3,}").quantifier);
+    }
+
+    private static Stream<Arguments> selectArgumentSource()
+    {
+        return Stream.of(
+            Arguments.arguments("func_1234_a", new int[] {0}),
+            Arguments.arguments("func_1234_a*", new int[] {0, 1, 2, 3, 4}),
+            Arguments.arguments("func_1234_a{2}", new int[] {1}),
+            Arguments.arguments("func_1234_a{,3}", new int[] {0, 1, 2}),
+            Arguments.arguments("func_1234_a{4,}", new int[] {3, 4}),
+            Arguments.arguments("func_1234_a{6}", new int[0]),
+            // indices only count candidates matching the descriptor
+            Arguments.arguments("func_1234_a{2}(I)V", new int[] {3}),
+            Arguments.arguments("func_1234_a*(Ljava/lang/String;)V", new int[] {1, 4}));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("selectArgumentSource")
+    public void select(String specification, int[] expected)
+    {
+        List<IndexedMethod> candidates = List.of(
+            new IndexedMethod(null, new String[] {"I"}),
+            new IndexedMethod(null, new String[] {"Ljava.lang.String;"}),
+            new IndexedMethod(null, new String[0]),
+            new IndexedMethod(null, new String[] {"I"}),
+            new IndexedMethod(null, new String[] {"Ljava/lang/String;"}));
+        var spec = MethodSpec.parse(specification);
+        // Selecting twice must give the same result, as specs are shared
+        for (int i = 0; i < 2; i++)
+        {
+            var selected = spec.select(candidates);
+            assertArrayEquals(expected, selected.stream().mapToInt(candidates::indexOf).toArray());
+        }
+    }
+
     public static void main(String[] args)
     {
         String[] specs = {
@@ -0,0 +1,59 @@
+package daomephsta.fabriclipse.mixin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonParseException;
+
+public class MixinConfigTests
+{
+    @Test
+    public void readMixinNames() throws IOException
+    {
+        String config = """
+            {
+              "required": true,
+              "package": "example.mixin",
+              "mixins": ["CommonMixin", "sub.NestedMixin"],
+              "client": ["ClientMixin"],
+              "injectors": {"defaultRequire": 1}
+            }
+            """;
+        assertEquals(List.of("example.mixin.CommonMixin", "example.mixin.sub.NestedMixin", "example.mixin.ClientMixin"),
+            ProjectMixins.readMixinNames(new StringReader(config)));
+    }
+
+    @Test
+    public void packageAfterMixins() throws IOException
+    {
+        String config = "{\"server\": [\"ServerMixin\"], \"package\": \"example.mixin\", \"mixins\": [\"CommonMixin\"]}";
+        assertEquals(List.of("example.mixin.ServerMixin", "example.mixin.CommonMixin"),
+            ProjectMixins.readMixinNames(new StringReader(config)));
+    }
+
+    @Test
+    public void lenient() throws IOException
+    {
+        String config = """
+            {
+              // Accepted by Mixin
+              'package': 'example.mixin',
+              "mixins": ["CommonMixin"]
+            }
+            """;
+        assertEquals(List.of("example.mixin.CommonMixin"), ProjectMixins.readMixinNames(new StringReader(config)));
+    }
+
+    @Test
+    public void noPackage()
+    {
+        assertThrows(JsonParseException.class,
+            () -> ProjectMixins.readMixinNames(new StringReader("{\"mixins\": [\"CommonMixin\"]}")));
+    }
+}
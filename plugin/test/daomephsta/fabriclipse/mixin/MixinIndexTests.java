@@ -0,0 +1,91 @@
+package daomephsta.fabriclipse.mixin;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IType;
+import org.junit.jupiter.api.Test;
+
+import daomephsta.fabriclipse.mixin.MixinIndex.Entry;
+import daomephsta.fabriclipse.mixin.MixinStore.MixinInfo;
+
+public class MixinIndexTests
+{
+    private static final Path JAR = new Path("/mods/example.jar");
+
+    @Test
+    public void pendingUntilResolved()
+    {
+        MixinIndex index = new MixinIndex();
+        int id = index.add(Entry.pending("a.mixins.json", "a.mixin.AMixin", JAR, List.of("net.minecraft.A", "net.minecraft.B")));
+        assertTrue(index.hasPending("net.minecraft.A"));
+        assertEquals(List.of(), index.mixinsFor("net.minecraft.A"));
+
+        IType mixin = type();
+        index.resolve(id, mixin, new MixinHandlers(mixin));
+        assertFalse(index.hasPending("net.minecraft.A"));
+        List<MixinInfo> mixins = index.mixinsFor("net.minecraft.B");
+        assertEquals(1, mixins.size());
+        assertSame(mixin, mixins.get(0).mixin());
+        assertEquals("net.minecraft.B", mixins.get(0).target());
+        assertEquals(id, index.idOf(mixin));
+    }
+
+    @Test
+    public void removeDropsPostings()
+    {
+        MixinIndex index = new MixinIndex();
+        int a = index.add(Entry.pending("a.mixins.json", "a.mixin.AMixin", JAR, List.of("net.minecraft.A")));
+        int b = index.add(Entry.pending("a.mixins.json", "a.mixin.BMixin", JAR, List.of("net.minecraft.A")));
+        assertArrayEquals(new int[] {a, b}, index.idsByTarget("net.minecraft.A"));
+
+        assertEquals("a.mixin.AMixin", index.remove(a).name());
+        assertNull(index.get(a));
+        assertArrayEquals(new int[] {b}, index.idsByTarget("net.minecraft.A"));
+        assertArrayEquals(new int[] {b}, index.idsByConfig("a.mixins.json"));
+        index.remove(b);
+        assertArrayEquals(new int[0], index.idsByTarget("net.minecraft.A"));
+        assertEquals(0, index.footprint().targets());
+    }
+
+    @Test
+    public void reusesIds()
+    {
+        MixinIndex index = new MixinIndex();
+        for (int i = 0; i < 100; i++)
+            index.add(Entry.pending("a.mixins.json", "a.mixin.Mixin" + i, JAR, List.of("net.minecraft.T" + i)));
+        index.remove(42);
+        assertEquals(42, index.add(Entry.pending("b.mixins.json", "b.mixin.Mixin", JAR, List.of("net.minecraft.T0"))));
+        assertEquals(100, index.footprint().mixins());
+        assertEquals(100, index.footprint().pending());
+    }
+
+    @Test
+    public void internsNames()
+    {
+        MixinIndex index = new MixinIndex();
+        int a = index.add(Entry.pending(new String("a.mixins.json"), "a.mixin.AMixin", JAR, List.of(new String("net.minecraft.A"))));
+        int b = index.add(Entry.pending(new String("a.mixins.json"), "a.mixin.BMixin", JAR, List.of(new String("net.minecraft.A"))));
+        assertSame(index.get(a).config(), index.get(b).config());
+        assertSame(index.get(a).targets()[0], index.get(b).targets()[0]);
+    }
+
+    private static IType type()
+    {
+        return (IType) Proxy.newProxyInstance(MixinIndexTests.class.getClassLoader(), new Class<?>[] {IType.class},
+            (proxy, method, args) -> switch (method.getName())
+            {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
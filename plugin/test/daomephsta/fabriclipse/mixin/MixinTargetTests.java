@@ -0,0 +1,31 @@
+package daomephsta.fabriclipse.mixin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import daomephsta.fabriclipse.util.ClassFileReader.Annotation;
+import daomephsta.fabriclipse.util.ClassFileReader.ClassValue;
+
+public class MixinTargetTests
+{
+    @Test
+    public void classTargets()
+    {
+        var mixin = new Annotation("Lorg/spongepowered/asm/mixin/Mixin;", Map.of("value",
+            List.of(new ClassValue("Lfoo/Outer;"), new ClassValue("Lfoo/Outer$Inner;"))));
+        // Named like Mixins.getTargetClasses() and IType.getFullyQualifiedName('.') name them
+        assertEquals(Set.of("foo.Outer", "foo.Outer.Inner"), ProjectMixins.readTargetClasses(mixin));
+    }
+
+    @Test
+    public void stringTargets()
+    {
+        var mixin = new Annotation("Lorg/spongepowered/asm/mixin/Mixin;", Map.of("targets", List.of("foo.Private")));
+        assertEquals(Set.of("foo.Private"), ProjectMixins.readTargetClasses(mixin));
+    }
+}
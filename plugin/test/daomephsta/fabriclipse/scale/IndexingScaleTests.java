@@ -0,0 +1,168 @@
+package daomephsta.fabriclipse.scale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.google.common.collect.Iterables;
+
+import daomephsta.fabriclipse.metadata.ProjectEnvironmentManager;
+import daomephsta.fabriclipse.metadata.ProjectEnvironmentManager.ProjectEnvironment;
+import daomephsta.fabriclipse.mixin.MixinStore;
+import daomephsta.fabriclipse.scale.SyntheticMods.Shape;
+
+// Indexes a generated workspace and reports how long each phase takes and how much memory it uses.
+// Must be run as a JUnit plug-in test, e.g. with -Dfabriclipse.scale.mods=250. See Shape for the other sizes.
+@EnabledIfSystemProperty(named = "fabriclipse.scale.mods", matches = "\\d+")
+public class IndexingScaleTests
+{
+    private static final long TIMEOUT_MINUTES = 30;
+
+    @Test
+    public void indexSyntheticWorkspace() throws Exception
+    {
+        Shape shape = Shape.fromSystemProperties();
+        Path directory = Files.createTempDirectory("fabriclipse-scale");
+        IProject project = null;
+        try
+        {
+            Usage generation = Usage.start();
+            List<Path> jars = SyntheticMods.generate(directory, shape);
+            report(shape, "Generating mods", generation.stop());
+            project = createProject("fabriclipse-scale", jars);
+
+            Usage scan = Usage.start();
+            ProjectEnvironment environment = ProjectEnvironmentManager.INSTANCE.getProjectEnvironment(project)
+                .get(TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            report(shape, "Scanning classpath", scan.stop());
+            // The project's own mod is included
+            assertEquals(shape.mods() + 1, Iterables.size(environment.allMods()));
+
+            // The first lookup waits for the project to be indexed, but only resolves the mixins of its own target
+            Usage indexing = Usage.start();
+            MixinStore.INSTANCE.mixinsFor(project, SyntheticMods.targetClass(0)).get(TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            report(shape, "Indexing mixins", indexing.stop());
+
+            Usage lookup = Usage.start();
+            int pairs = 0;
+            for (int target = 0; target < shape.targetClasses(); target++)
+            {
+                pairs += MixinStore.INSTANCE.mixinsFor(project, SyntheticMods.targetClass(target))
+                    .get(TIMEOUT_MINUTES, TimeUnit.MINUTES).mixins().size();
+            }
+            report(shape, "Looking up all targets", lookup.stop());
+            System.out.printf("[%s] Index: %s%n", shape, MixinStore.INSTANCE.footprint(project));
+            assertEquals(shape.mixinTargetPairs(), pairs);
+        }
+        finally
+        {
+            if (project != null)
+                project.delete(true, true, null);
+            SyntheticMods.delete(directory);
+        }
+    }
+
+    private static IProject createProject(String name, List<Path> jars) throws CoreException
+    {
+        IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(name);
+        project.create(null);
+        project.open(null);
+        IProjectDescription description = project.getDescription();
+        description.setNatureIds(new String[] {JavaCore.NATURE_ID});
+        project.setDescription(description, null);
+
+        IFolder resources = project.getFolder("src/main/resources");
+        project.getFolder("src").create(true, true, null);
+        project.getFolder("src/main").create(true, true, null);
+        resources.create(true, true, null);
+        createFile(resources.getFile("fabric.mod.json"), SyntheticMods.fabricModJson("scale", List.of("scale.mixins.json")));
+        createFile(resources.getFile("scale.mixins.json"), "{\"package\": \"scale.mixin\", \"mixins\": []}");
+
+        List<IClasspathEntry> classpath = new ArrayList<>();
+        classpath.add(JavaCore.newSourceEntry(resources.getFullPath()));
+        classpath.add(JavaCore.newContainerEntry(
+            new org.eclipse.core.runtime.Path("org.eclipse.jdt.launching.JRE_CONTAINER")));
+        for (Path jar : jars)
+            classpath.add(JavaCore.newLibraryEntry(new org.eclipse.core.runtime.Path(jar.toString()), null, null));
+        IJavaProject javaProject = JavaCore.create(project);
+        javaProject.setRawClasspath(classpath.toArray(IClasspathEntry[]::new), project.getFullPath().append("bin"), null);
+        return project;
+    }
+
+    private static void createFile(IFile file, String contents) throws CoreException
+    {
+        file.create(new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)), true, null);
+    }
+
+    private static void report(Shape shape, String phase, Usage.Result result)
+    {
+        System.out.printf("[%s] %s: %d ms, %.1f MB allocated, %.1f MB peak heap%n", shape, phase,
+            TimeUnit.NANOSECONDS.toMillis(result.nanos()), result.allocatedBytes() / 1048576.0,
+            result.peakHeapBytes() / 1048576.0);
+    }
+
+    // Wall time, allocations and peak heap of a phase. Work is spread over several pools,
+    // so allocations are summed over all threads. Threads that exit during the phase are missed.
+    // Peak heap is the sum of each pool's peak, so it is an upper bound.
+    private record Usage(long startNanos, long startAllocatedBytes)
+    {
+        record Result(long nanos, long allocatedBytes, long peakHeapBytes) {}
+
+        static Usage start()
+        {
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            {
+                if (pool.getType() == MemoryType.HEAP)
+                    pool.resetPeakUsage();
+            }
+            return new Usage(System.nanoTime(), allocatedBytes());
+        }
+
+        Result stop()
+        {
+            long nanos = System.nanoTime() - startNanos;
+            long peakHeap = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            {
+                if (pool.getType() == MemoryType.HEAP)
+                    peakHeap += pool.getPeakUsage().getUsed();
+            }
+            return new Result(nanos, allocatedBytes() - startAllocatedBytes, peakHeap);
+        }
+
+        private static long allocatedBytes()
+        {
+            var threads = ManagementFactory.getPlatformMXBean(com.sun.management.ThreadMXBean.class);
+            long total = 0;
+            for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+            {
+                // -1 for threads that exited since their ids were listed
+                if (allocated > 0)
+                    total += allocated;
+            }
+            return total;
+        }
+    }
+}
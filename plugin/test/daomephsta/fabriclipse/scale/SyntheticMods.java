@@ -0,0 +1,242 @@
+package daomephsta.fabriclipse.scale;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+// Generates mod jars shaped like real ones: fabric.mod.json, mixin configs and compiled mixin classes.
+// Mixins are compiled against stub Mixin annotations, so nothing but a JDK is needed.
+public class SyntheticMods
+{
+    private static final String TARGET_PACKAGE = "net.minecraft.synthetic";
+    private static final Map<String, String> STUBS = Map.of(
+        "org/spongepowered/asm/mixin/Mixin.java", """
+            package org.spongepowered.asm.mixin;
+
+            public @interface Mixin
+            {
+                Class<?>[] value() default {};
+                String[] targets() default {};
+                int priority() default 1000;
+            }
+            """,
+        "org/spongepowered/asm/mixin/injection/Inject.java", """
+            package org.spongepowered.asm.mixin.injection;
+
+            public @interface Inject
+            {
+                String[] method() default {};
+            }
+            """,
+        "org/spongepowered/asm/mixin/injection/callback/CallbackInfo.java", """
+            package org.spongepowered.asm.mixin.injection.callback;
+
+            public class CallbackInfo {}
+            """);
+
+    // Each mixin targets targetsPerMixin consecutive classes out of targetClasses
+    public record Shape(int mods, int configsPerMod, int mixinsPerConfig, int targetClasses, int targetsPerMixin)
+    {
+        public Shape
+        {
+            if (targetsPerMixin > targetClasses)
+                throw new IllegalArgumentException("targetsPerMixin > targetClasses");
+        }
+
+        public static Shape fromSystemProperties()
+        {
+            return new Shape(
+                Integer.getInteger("fabriclipse.scale.mods", 10),
+                Integer.getInteger("fabriclipse.scale.configs", 2),
+                Integer.getInteger("fabriclipse.scale.mixins", 20),
+                Integer.getInteger("fabriclipse.scale.targets", 500),
+                Integer.getInteger("fabriclipse.scale.targetsPerMixin", 2));
+        }
+
+        public int mixinTargetPairs()
+        {
+            return mods * configsPerMod * mixinsPerConfig * targetsPerMixin;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d mods x %d configs x %d mixins, %d targets (%d per mixin)",
+                mods, configsPerMod, mixinsPerConfig, targetClasses, targetsPerMixin);
+        }
+    }
+
+    public static String targetClass(int index)
+    {
+        return TARGET_PACKAGE + ".Target" + index;
+    }
+
+    // Returns the generated jars: the mods, then a jar of target classes and one of the stub annotations
+    public static List<Path> generate(Path directory, Shape shape) throws IOException
+    {
+        List<Path> jars = new ArrayList<>(shape.mods() + 2);
+        Path stubs = compile(directory.resolve("stubs-src"), directory.resolve("stubs"), STUBS, null);
+        for (int mod = 0; mod < shape.mods(); mod++)
+            jars.add(generateMod(directory, shape, mod, stubs));
+        Map<String, String> targets = new TreeMap<>();
+        for (int target = 0; target < shape.targetClasses(); target++)
+            targets.put(targetClass(target).replace('.', '/') + ".java", targetSource(target));
+        Path targetClasses = compile(directory.resolve("targets-src"), directory.resolve("targets"), targets, null);
+        jars.add(jar(directory.resolve("targets.jar"), targetClasses, Map.of()));
+        jars.add(jar(directory.resolve("mixin-stubs.jar"), stubs, Map.of()));
+        return jars;
+    }
+
+    private static Path generateMod(Path directory, Shape shape, int mod, Path stubs) throws IOException
+    {
+        String modId = "synthetic" + mod;
+        Map<String, String> resources = new TreeMap<>();
+        Map<String, String> sources = new TreeMap<>();
+        List<String> configs = new ArrayList<>();
+        for (int config = 0; config < shape.configsPerMod(); config++)
+        {
+            String configName = modId + ".c" + config + ".mixins.json";
+            String packageName = modId + ".mixin.c" + config;
+            List<String> mixinNames = new ArrayList<>();
+            for (int mixin = 0; mixin < shape.mixinsPerConfig(); mixin++)
+            {
+                int first = ((mod * shape.configsPerMod() + config) * shape.mixinsPerConfig() + mixin) * 31;
+                String mixinName = "Mixin" + mixin;
+                mixinNames.add(mixinName);
+                sources.put(packageName.replace('.', '/') + '/' + mixinName + ".java",
+                    mixinSource(packageName, mixinName, shape, first));
+            }
+            configs.add(configName);
+            resources.put(configName, mixinConfig(packageName, mixinNames));
+        }
+        resources.put("fabric.mod.json", fabricModJson(modId, configs));
+        Path classes = compile(directory.resolve(modId + "-src"), directory.resolve(modId), sources, stubs);
+        return jar(directory.resolve(modId + ".jar"), classes, resources);
+    }
+
+    private static String targetSource(int target)
+    {
+        var source = new StringBuilder()
+            .append("package ").append(TARGET_PACKAGE).append(";\n\n")
+            .append("public class Target").append(target).append("\n{\n");
+        for (int method = 0; method < 8; method++)
+            source.append("    public void method_").append(method).append("(int i) {}\n");
+        return source.append("}\n").toString();
+    }
+
+    private static String mixinSource(String packageName, String mixinName, Shape shape, int firstTarget)
+    {
+        var source = new StringBuilder()
+            .append("package ").append(packageName).append(";\n\n")
+            .append("import org.spongepowered.asm.mixin.Mixin;\n")
+            .append("import org.spongepowered.asm.mixin.injection.Inject;\n")
+            .append("import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;\n\n")
+            .append("@Mixin(targets = {");
+        for (int i = 0; i < shape.targetsPerMixin(); i++)
+        {
+            if (i > 0)
+                source.append(", ");
+            source.append('"').append(targetClass((firstTarget + i) % shape.targetClasses())).append('"');
+        }
+        return source.append("})\n")
+            .append("public abstract class ").append(mixinName).append("\n{\n")
+            .append("    @Inject(method = \"method_").append(firstTarget % 8).append("\")\n")
+            .append("    private void onMethod(int i, CallbackInfo info) {}\n")
+            .append("}\n")
+            .toString();
+    }
+
+    private static String mixinConfig(String packageName, List<String> mixinNames)
+    {
+        var json = new StringBuilder()
+            .append("{\n  \"required\": true,\n  \"package\": \"").append(packageName).append("\",\n")
+            .append("  \"compatibilityLevel\": \"JAVA_16\",\n  \"mixins\": [");
+        for (int i = 0; i < mixinNames.size(); i++)
+            json.append(i > 0 ? ", " : "").append('"').append(mixinNames.get(i)).append('"');
+        return json.append("],\n  \"injectors\": {\"defaultRequire\": 1}\n}\n").toString();
+    }
+
+    public static String fabricModJson(String modId, List<String> configs)
+    {
+        var json = new StringBuilder()
+            .append("{\n  \"schemaVersion\": 1,\n  \"id\": \"").append(modId).append("\",\n")
+            .append("  \"version\": \"1.0.0\",\n  \"environment\": \"*\",\n  \"mixins\": [");
+        for (int i = 0; i < configs.size(); i++)
+            json.append(i > 0 ? ", " : "").append('"').append(configs.get(i)).append('"');
+        return json.append("],\n  \"depends\": {\"fabricloader\": \">=0.11.3\"}\n}\n").toString();
+    }
+
+    private static Path compile(Path sourceDirectory, Path outputDirectory, Map<String, String> sources,
+        Path classpath) throws IOException
+    {
+        List<String> arguments = new ArrayList<>(List.of("-nowarn", "-proc:none", "-d", outputDirectory.toString()));
+        if (classpath != null)
+            arguments.addAll(List.of("-cp", classpath.toString()));
+        for (Map.Entry<String, String> source : sources.entrySet())
+        {
+            Path file = sourceDirectory.resolve(source.getKey());
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, source.getValue());
+            arguments.add(file.toString());
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+            throw new IllegalStateException("Generating mods requires a JDK");
+        if (compiler.run(null, null, null, arguments.toArray(String[]::new)) != 0)
+            throw new IllegalStateException("Compiling " + sourceDirectory + " failed");
+        return outputDirectory;
+    }
+
+    private static Path jar(Path jar, Path classes, Map<String, String> resources) throws IOException
+    {
+        try (OutputStream out = Files.newOutputStream(jar); var jarOut = new JarOutputStream(out);
+            Stream<Path> classFiles = Files.walk(classes))
+        {
+            for (Map.Entry<String, String> resource : resources.entrySet())
+            {
+                jarOut.putNextEntry(new JarEntry(resource.getKey()));
+                jarOut.write(resource.getValue().getBytes(StandardCharsets.UTF_8));
+                jarOut.closeEntry();
+            }
+            for (Path classFile : (Iterable<Path>) classFiles.filter(Files::isRegularFile)::iterator)
+            {
+                jarOut.putNextEntry(new JarEntry(classes.relativize(classFile).toString().replace('\\', '/')));
+                Files.copy(classFile, jarOut);
+                jarOut.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    public static void delete(Path directory) throws IOException
+    {
+        try (Stream<Path> files = Files.walk(directory))
+        {
+            files.sorted(Comparator.reverseOrder()).forEach(file ->
+            {
+                try
+                {
+                    Files.delete(file);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package daomephsta.fabriclipse.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import daomephsta.fabriclipse.util.ClassFileReader.Annotation;
+import daomephsta.fabriclipse.util.ClassFileReader.ClassValue;
+import daomephsta.fabriclipse.util.ClassFileReader.EnumValue;
+import daomephsta.fabriclipse.util.ClassFileReader.Method;
+
+public class ClassFileReaderTests
+{
+    private static final String SOURCE = """
+        package test;
+
+        import java.lang.annotation.*;
+
+        @Target({ElementType.TYPE, ElementType.METHOD})
+        @interface Invisible
+        {
+            Class<?>[] value() default {};
+            String[] targets() default {};
+            long big() default 0;
+            double fraction() default 0;
+        }
+
+        @Retention(RetentionPolicy.RUNTIME)
+        @interface Visible
+        {
+            RetentionPolicy policy();
+            Invisible nested();
+            boolean flag();
+            char letter();
+        }
+
+        @Invisible(value = {String.class, Map.Entry.class}, targets = "caf\u00e9.Target", big = 1L << 40, fraction = 0.5)
+        @Visible(policy = RetentionPolicy.CLASS, nested = @Invisible, flag = true, letter = 'x')
+        public class Annotated
+        {
+            private static final long CONSTANT = 42L;
+            private int field;
+
+            public void method(@Deprecated int i) {}
+
+            @Invisible(targets = {"a", "b"})
+            @Deprecated
+            <T> java.util.List<T> generic(T value) { return null; }
+        }
+
+        interface Map { interface Entry {} }
+        """;
+    private static byte[] annotated;
+
+    @BeforeAll
+    public static void compile(@TempDir Path directory) throws IOException
+    {
+        Path source = directory.resolve("test/Annotated.java");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, SOURCE);
+        int result = ToolProvider.getSystemJavaCompiler().run(null, null, null,
+            "-nowarn", "-encoding", "UTF-8", "-d", directory.toString(), source.toString());
+        assertEquals(0, result);
+        annotated = Files.readAllBytes(directory.resolve("test/Annotated.class"));
+    }
+
+    @Test
+    public void classAnnotations()
+    {
+        List<Annotation> annotations = new ClassFileReader(annotated).classAnnotations();
+        assertEquals(List.of(
+            new Annotation("Ltest/Visible;", Map.of(
+                "policy", new EnumValue("Ljava/lang/annotation/RetentionPolicy;", "CLASS"),
+                "nested", new Annotation("Ltest/Invisible;", Map.of()),
+                "flag", true,
+                "letter", 'x')),
+            new Annotation("Ltest/Invisible;", Map.of(
+                "value", List.of(new ClassValue("Ljava/lang/String;"), new ClassValue("Ltest/Map$Entry;")),
+                "targets", List.of("caf\u00e9.Target"),
+                "big", 1L << 40,
+                "fraction", 0.5))),
+            annotations);
+    }
+
+    @Test
+    public void methods()
+    {
+        List<Method> methods = new ClassFileReader(annotated).methods();
+        assertEquals(List.of(
+            new Method(0x0001, "<init>", "()V", null, List.of()),
+            new Method(0x0001, "method", "(I)V", null, List.of()),
+            new Method(0x0000, "generic", "(Ljava/lang/Object;)Ljava/util/List;",
+                "<T:Ljava/lang/Object;>(TT;)Ljava/util/List<TT;>;", List.of(
+                    new Annotation("Ljava/lang/Deprecated;", Map.of()),
+                    new Annotation("Ltest/Invisible;", Map.of("targets", List.of("a", "b")))))),
+            methods);
+    }
+
+    @Test
+    public void notAClassFile()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new ClassFileReader(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10}));
+        assertThrows(IllegalArgumentException.class, () -> new ClassFileReader(new byte[] {(byte) 0xCA, (byte) 0xFE}));
+    }
+
+    @Test
+    public void truncated()
+    {
+        for (int length = 0; length < annotated.length; length++)
+        {
+            byte[] truncated = Arrays.copyOf(annotated, length);
+            assertThrows(IllegalArgumentException.class, () -> new ClassFileReader(truncated).classAnnotations());
+        }
+    }
+
+    @Test
+    public void corruptConstantPool()
+    {
+        // Fewer constants than the class refers to
+        byte[] tooFewConstants = annotated.clone();
+        tooFewConstants[8] = 0;
+        tooFewConstants[9] = 8;
+        assertThrows(IllegalArgumentException.class, () -> new ClassFileReader(tooFewConstants).classAnnotations());
+        assertThrows(IllegalArgumentException.class, () -> new ClassFileReader(tooFewConstants).methods());
+        // A broken continuation byte in the modified UTF-8 of "caf\u00e9.Target"
+        byte[] badUtf8 = annotated.clone();
+        byte[] cafe = "caf\u00e9".getBytes(StandardCharsets.UTF_8);
+        int offset = indexOf(badUtf8, cafe);
+        badUtf8[offset + cafe.length - 1] = 'x';
+        assertThrows(IllegalArgumentException.class, () -> new ClassFileReader(badUtf8).classAnnotations());
+    }
+
+    private static int indexOf(byte[] bytes, byte[] sought)
+    {
+        search: for (int i = 0; i <= bytes.length - sought.length; i++)
+        {
+            for (int j = 0; j < sought.length; j++)
+            {
+                if (bytes[i + j] != sought[j])
+                    continue search;
+            }
+            return i;
+        }
+        throw new AssertionError("Not found");
+    }
+}